@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.THING_TYPE_APPLETV;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingStatusInfo;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
+import org.eclipse.smarthome.core.thing.binding.builder.ThingBuilder;
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.binding.appletv.internal.jpy.FakePyATVProxy;
+import org.openhab.binding.appletv.internal.jpy.LibPyATV;
+
+/**
+ * The {@link BenchmarkSupport} creates an initialized thing handler without the framework: fake or real PyATV
+ * proxy and a thing callback, which only tracks the thing status and passes channel updates to a listener.
+ *
+ * @author markus7017 - Initial contribution
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Receives the channel updates of a handler (called on the thread updating the state)
+     */
+    interface StateListener {
+        void stateUpdated(ChannelUID channelUID, State state);
+    }
+
+    /**
+     * Create and initialize a handler (polling mode, no local position updates)
+     */
+    static AppleTVHandler createHandler() throws InterruptedException {
+        return createHandler(new LibPyATV(new FakePyATVProxy()), config("127.0.0.1", false), "benchmark", null);
+    }
+
+    /**
+     * Thing configuration for a (simulated) device
+     */
+    static Configuration config(String ipAddress, boolean pushUpdates) {
+        Configuration config = new Configuration();
+        config.put("ipAddress", ipAddress);
+        config.put("loginId", "0x0000000000000001");
+        config.put("keyMovie", "top_menu select");
+        config.put("keyTVShow", "top_menu right select");
+        config.put("keyMusic", "top_menu right right select");
+        config.put("pushUpdates", pushUpdates);
+        config.put("positionInterval", 0);
+        return config;
+    }
+
+    /**
+     * Create a handler and wait until it is online
+     */
+    static AppleTVHandler createHandler(LibPyATV pyATV, Configuration config, String id,
+            @Nullable StateListener listener) throws InterruptedException {
+        Thing thing = ThingBuilder.create(THING_TYPE_APPLETV, id).withConfiguration(config).build();
+        AppleTVHandler handler = new AppleTVHandler(thing, new AppleTVHandlerFactory(pyATV));
+        CountDownLatch online = new CountDownLatch(1);
+        handler.setCallback((ThingHandlerCallback) Proxy.newProxyInstance(BenchmarkSupport.class.getClassLoader(),
+                new Class<?>[] { ThingHandlerCallback.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "statusUpdated":
+                            ThingStatusInfo status = (ThingStatusInfo) args[1];
+                            thing.setStatusInfo(status);
+                            if (status.getStatus() == ThingStatus.ONLINE) {
+                                online.countDown();
+                            }
+                            break;
+                        case "stateUpdated":
+                            if (listener != null) {
+                                listener.stateUpdated((ChannelUID) args[0], (State) args[1]);
+                            }
+                            break;
+                    }
+                    return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                }));
+        handler.initialize();
+        if (!online.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Handler " + id + " didn't go online");
+        }
+        return handler;
+    }
+}
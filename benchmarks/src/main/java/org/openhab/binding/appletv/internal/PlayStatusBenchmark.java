@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link PlayStatusBenchmark} measures the per-poll cost of a play status update (callback from the PyATV
+ * module): unchanged status, position update and track change.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayStatusBenchmark {
+    private static final int MEDIA_TYPE_MUSIC = 3;
+    private static final int PLAY_STATE_PLAYING = 4;
+
+    private AppleTVHandler handler;
+    private long position = 0;
+    private boolean track = false;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        handler = BenchmarkSupport.createHandler();
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.dispose();
+    }
+
+    @Benchmark
+    public void unchanged() {
+        handler.playStatusEvent(MEDIA_TYPE_MUSIC, PLAY_STATE_PLAYING, "Title", "Artist", "Album", "Genre", 42, 300, 0,
+                false);
+    }
+
+    @Benchmark
+    public void positionChanged() {
+        position = (position + 1) % 300;
+        handler.playStatusEvent(MEDIA_TYPE_MUSIC, PLAY_STATE_PLAYING, "Title", "Artist", "Album", "Genre", position,
+                300, 0, false);
+    }
+
+    @Benchmark
+    public void trackChanged() {
+        track = !track;
+        if (track) {
+            handler.playStatusEvent(MEDIA_TYPE_MUSIC, PLAY_STATE_PLAYING, "Title", "Artist", "Album", "Genre", 0, 300,
+                    0, false);
+        } else {
+            handler.playStatusEvent(MEDIA_TYPE_MUSIC, PLAY_STATE_PLAYING, "Other Title", "Other Artist",
+                    "Other Album", "Other Genre", 0, 240, 0, false);
+        }
+    }
+}
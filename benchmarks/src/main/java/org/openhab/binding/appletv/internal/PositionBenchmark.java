@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link PositionBenchmark} measures the position channel: parsing a new position (queued as seek) and the
+ * formatting of time values.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PositionBenchmark {
+    private final char[] buffer = new char[20];
+    private AppleTVHandler handler;
+    private long seconds = 0;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        handler = BenchmarkSupport.createHandler();
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.dispose();
+    }
+
+    @Benchmark
+    public boolean setPositionAbsolute() {
+        return handler.setPosition("01:23:45");
+    }
+
+    @Benchmark
+    public boolean setPositionRelative() {
+        return handler.setPosition("+30");
+    }
+
+    @Benchmark
+    public int formatTimeBuffer() {
+        seconds = (seconds + 1) % 36000;
+        return AppleTVPlayStatus.formatTime(seconds, buffer);
+    }
+
+    @Benchmark
+    public String formatTime() {
+        seconds = (seconds + 1) % 36000;
+        return AppleTVPlayStatus.formatTime(seconds);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.binding.appletv.internal.jpy.LibPyATV;
+
+/**
+ * The {@link SimulatorLoadTest} runs N things against devices simulated by lib/tools/atv_simulator.py (real PyATV
+ * module, push updates) and records the latency from a remote key command to the resulting channel update and the
+ * overall throughput.
+ *
+ * Start the simulator with the same number of devices, then run
+ * java -cp benchmarks/target/benchmarks.jar org.openhab.binding.appletv.internal.SimulatorLoadTest
+ * &lt;devices&gt; &lt;commands per device&gt; [&lt;address of the first device&gt;]
+ *
+ * @author markus7017 - Initial contribution
+ */
+public class SimulatorLoadTest {
+    private static final long COMMAND_TIMEOUT = 10; // sec
+
+    /**
+     * One simulated device: sends play/pause alternately and waits for the play mode channel to follow
+     */
+    private static class Device implements BenchmarkSupport.StateListener {
+        private final String playModeChannel = CHGROUP_STATUS + "#" + CHANNEL_PLAY_MODE;
+        private volatile String expected = "";
+        private volatile CountDownLatch confirmed = new CountDownLatch(1);
+        private AppleTVHandler handler;
+
+        @Override
+        public void stateUpdated(ChannelUID channelUID, State state) {
+            if (playModeChannel.equals(channelUID.getId()) && expected.equals(state.toString())) {
+                confirmed.countDown();
+            }
+        }
+
+        void run(int commands, Queue<Long> latencies, AtomicInteger timeouts) throws InterruptedException {
+            ChannelUID remoteKey = new ChannelUID(handler.getThing().getUID(),
+                    CHGROUP_CONTROL + "#" + CHANNEL_REMOTE_KEY);
+            for (int i = 0; i < commands; i++) {
+                boolean pause = i % 2 == 0;
+                confirmed = new CountDownLatch(1);
+                expected = pause ? PLAY_STATE_PAUSED : PLAY_STATE_PLAYING;
+                long start = System.nanoTime();
+                handler.handleCommand(remoteKey, new StringType(pause ? "pause" : "play"));
+                if (confirmed.await(COMMAND_TIMEOUT, TimeUnit.SECONDS)) {
+                    latencies.add(System.nanoTime() - start);
+                } else {
+                    timeouts.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int commands = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        String baseAddress = args.length > 2 ? args[2] : "127.0.0.1";
+
+        LibPyATV pyATV = new LibPyATV(Files.createTempDirectory("appletv-loadtest").toString());
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < deviceCount; i++) {
+            Device device = new Device();
+            device.handler = BenchmarkSupport.createHandler(pyATV,
+                    BenchmarkSupport.config(address(baseAddress, i), true), "sim" + (i + 1), device);
+            devices.add(device);
+        }
+        System.out.println(deviceCount + " things online, sending " + commands + " commands per device");
+
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger timeouts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(deviceCount);
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (Device device : devices) {
+            results.add(executor.submit(() -> {
+                device.run(commands, latencies, timeouts);
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        System.out.println(String.format("commands: %d confirmed, %d timed out, %.1f cmd/s", sorted.length,
+                timeouts.get(), sorted.length / (elapsed / 1e9)));
+        if (sorted.length > 0) {
+            System.out.println(String.format("latency (ms): p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    sorted[sorted.length - 1] / 1e6));
+        }
+
+        for (Device device : devices) {
+            device.handler.dispose();
+        }
+        System.exit(0);
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static String address(String baseAddress, int offset) throws UnknownHostException {
+        int base = ByteBuffer.wrap(InetAddress.getByName(baseAddress).getAddress()).getInt();
+        return InetAddress.getByAddress(ByteBuffer.allocate(4).putInt(base + offset).array()).getHostAddress();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.jpy;
+
+import org.jpy.PyObject;
+import org.openhab.binding.appletv.internal.AppleTVHandler;
+
+/**
+ * The {@link FakePyATVProxy} replaces the Python module for benchmarks. It only records the arguments, the calls
+ * return no result (reported as failed call by {@link LibPyATV}).
+ *
+ * @author markus7017 - Initial contribution
+ */
+public class FakePyATVProxy implements LibPyATV.PyATVProxy {
+    public volatile String[] lastArgs = new String[0];
+    public volatile long calls = 0;
+
+    @Override
+    public PyObject init(AppleTVHandler handler) {
+        return null;
+    }
+
+    @Override
+    public PyObject exec(Object handler, String[] args) {
+        lastArgs = args;
+        calls++;
+        return null;
+    }
+
+    @Override
+    public PyObject playing(Object handler, String address, String loginId, int timeout) {
+        calls++;
+        return null;
+    }
+
+    @Override
+    public PyObject press(Object handler, String address, String loginId, String[] keys, int keyDelay,
+            int gestureFrames, int timeout) {
+        lastArgs = keys;
+        calls++;
+        return null;
+    }
+
+    @Override
+    public PyObject setPosition(Object handler, String address, String loginId, int seconds, int timeout) {
+        calls++;
+        return null;
+    }
+
+    @Override
+    public PyObject setShuffle(Object handler, String address, String loginId, boolean on, int timeout) {
+        calls++;
+        return null;
+    }
+
+    @Override
+    public PyObject setRepeat(Object handler, String address, String loginId, int mode, int timeout) {
+        calls++;
+        return null;
+    }
+
+    @Override
+    public PyObject artwork(Object handler, String address, String loginId, int timeout) {
+        calls++;
+        return null;
+    }
+
+    @Override
+    public PyObject subscribe(Object handler, String address, String loginId) {
+        return null;
+    }
+
+    @Override
+    public PyObject unsubscribe(String address, String loginId) {
+        return null;
+    }
+
+    @Override
+    public PyObject close(String address, String loginId) {
+        return null;
+    }
+
+    @Override
+    public PyObject probe(Object handler, String address, String loginId, int timeout) {
+        return null;
+    }
+
+    @Override
+    public PyObject startDiscovery(Object handler) {
+        return null;
+    }
+
+    @Override
+    public PyObject stopDiscovery() {
+        return null;
+    }
+}
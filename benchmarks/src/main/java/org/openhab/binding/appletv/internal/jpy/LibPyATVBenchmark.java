@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.jpy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link LibPyATVBenchmark} measures the Java side of a bridge call: argument building and the device lane.
+ * sendPlaying() uses the atvremote syntax (argv), pollStatus() the typed proxy method.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibPyATVBenchmark {
+    private static final String IP_ADDRESS = "127.0.0.1";
+    private static final String LOGIN_ID = "00000000-1111-2222-3333-444444444444";
+    private static final String[] KEYS = { "top_menu", "up", "left", "left", "down", "right", "select" };
+
+    private final Object handler = new Object();
+    private LibPyATV pyATV;
+
+    @Setup
+    public void setup() {
+        pyATV = new LibPyATV(new FakePyATVProxy());
+    }
+
+    @Benchmark
+    public boolean sendPlaying() {
+        return pyATV.sendCommands("playing", handler, IP_ADDRESS, LOGIN_ID);
+    }
+
+    @Benchmark
+    public boolean pollStatus() {
+        return pyATV.pollStatus(handler, IP_ADDRESS, LOGIN_ID);
+    }
+
+    @Benchmark
+    public boolean sendCommandSequence() {
+        return pyATV.sendCommands("top_menu up left left down right select", handler, IP_ADDRESS, LOGIN_ID);
+    }
+
+    @Benchmark
+    public boolean sendKeys() {
+        return pyATV.sendKeys(KEYS, 0, 7, handler, IP_ADDRESS, LOGIN_ID);
+    }
+}
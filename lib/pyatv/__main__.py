@@ -412,7 +412,7 @@ def _pretty_print(data):
         return
     if isinstance(data, bytes):
         print(binascii.hexlify(data))
-    elif isinstance(data, list):
+    elif isinstance(data, (list, dmap.DmapView)):
         print(dmap.pprint(data, tag_definitions.lookup_tag))
     else:
         print(data)
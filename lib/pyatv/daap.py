@@ -88,7 +88,7 @@ class DaapRequester:
     def _do(self, action, retry=True, is_login=False, is_daap=True):
         resp, status = yield from action()
         if is_daap:
-            resp = dmap.parse(resp, lookup_tag)
+            resp = dmap.DmapView(resp, lookup_tag)
 
         self._log_response(str(action.__name__) + ': %s', resp, is_daap)
         if 200 <= status < 300:
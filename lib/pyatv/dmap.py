@@ -8,6 +8,8 @@ a four byte big endian unsigned int as length and the data as data. So:
   +---------------+------------------+--------------------+
 """
 
+import struct
+
 from collections import namedtuple
 
 from pyatv import exceptions
@@ -53,8 +55,84 @@ def parse(data, tag_lookup):
     return _parse(data, len(data), tag_lookup, 0, [])
 
 
+_HEADER = struct.Struct('>4sI')
+_MISSING = object()
+
+
+class DmapView:
+    """Lazy view on raw DMAP data.
+
+    Other than parse() nothing is copied or decoded up front. The data is
+    kept as a memoryview, the tags of a container are indexed (offsets only)
+    the first time a path goes through it and only the requested values get
+    decoded. Containers which are not on a requested path are skipped
+    without looking at their content. Decoded values are cached.
+    """
+
+    __slots__ = ('_data', '_start', '_end', '_tag_lookup', '_index',
+                 '_values')
+
+    def __init__(self, data, tag_lookup, start=0, end=None):
+        """Initialize a view on data[start:end]."""
+        self._data = data if isinstance(data, memoryview) \
+            else memoryview(data if data is not None else b'')
+        self._start = start
+        self._end = len(self._data) if end is None else end
+        self._tag_lookup = tag_lookup
+        self._index = None
+        self._values = {}
+
+    def first(self, *path):
+        """Look up a value given a path, like first() for parsed data."""
+        # values are cached by the complete path, repeated reads are cheap
+        value = self._values.get(path, _MISSING)
+        if value is not _MISSING:
+            return value
+        if not path:
+            return self
+        child = self._values.get(path[0], _MISSING)
+        if child is _MISSING:
+            child = self._decode(path[0])
+            self._values[path[0]] = child
+        value = child.first(*path[1:]) \
+            if isinstance(child, DmapView) else child
+        self._values[path] = value
+        return value
+
+    def to_list(self):
+        """Return the data parsed like parse(), e.g. for pprint()."""
+        return parse(self._data[self._start:self._end], self._tag_lookup)
+
+    def _decode(self, name):
+        entry = self._tags().get(name.encode('ascii'))
+        if entry is None:
+            return None
+        start, length = entry
+        tag = self._tag_lookup(name)
+        if tag.type == 'container':
+            return DmapView(self._data, self._tag_lookup,
+                            start, start + length)
+        return tag.type(self._data, start, length)
+
+    def _tags(self):
+        if self._index is None:
+            index = {}
+            data = self._data
+            pos = self._start
+            end = self._end
+            while pos + 8 <= end:
+                name, length = _HEADER.unpack_from(data, pos)
+                # the first occurrence wins, like first() on parsed data
+                index.setdefault(name, (pos + 8, min(length, end - pos - 8)))
+                pos += 8 + length
+            self._index = index
+        return self._index
+
+
 def first(dmap_data, *path):
     """Look up a value given a path in some parsed DMAP data."""
+    if isinstance(dmap_data, DmapView):
+        return dmap_data.first(*path)
     if not (path and isinstance(dmap_data, list)):
         return dmap_data
 
@@ -69,6 +147,8 @@ def first(dmap_data, *path):
 def pprint(data, tag_lookup, indent=0):
     """Return a pretty formatted string of parsed DMAP data."""
     output = ''
+    if isinstance(data, DmapView):
+        data = data.to_list()
     if isinstance(data, dict):
         for key, value in data.items():
             tag = tag_lookup(key)
@@ -8,8 +8,6 @@ from abc import (ABCMeta, abstractmethod, abstractproperty)
 
 from pyatv import (convert, exceptions)
 
-import pyatv_api
-
 # TODO: make these methods more pretty and safe
 def _get_first_sentence_in_pydoc(obj):
 	doc = obj.__doc__
@@ -133,32 +131,25 @@ class Playing:
 
 		mtype = convert.media_type_str(self.media_type)
 		output.append('Media type: {0} ({1})'.format(mtype, self.media_type))
-		pyatv_api.javaHandler.statusEvent("media_type", str(mtype))
 		
 		output.append('Play state: {0} ({1})'.format(
 			convert.playstate_str(self.play_state), self.play_state))
-		pyatv_api.javaHandler.statusEvent("play_state", 
-			str(convert.playstate_str(self.play_state)))
 
 		if self.title is not None:
 			title = self.title.strip("\0")
 			output.append('	 Title: {0}'.format(title))
-			pyatv_api.javaHandler.statusEvent("title", str(self.title))
 
 		if self.artist is not None:
 			artist = self.artist.strip("\0")
 			output.append('	Artist: {0}'.format(artist))
-			pyatv_api.javaHandler.statusEvent("artist", str(artist))
 
 		if self.album is not None:
 			album = self.album.strip("\0")
 			output.append('	 Album: {0}'.format(album))
-			pyatv_api.javaHandler.statusEvent("album", str(album))
 
 		if self.genre is not None:
 			genre = self.genre.strip("\0")
 			output.append('	 Genre: {0}'.format(genre))
-			pyatv_api.javaHandler.statusEvent("genre", str(genre))
 
 		position = self.position
 		total_time = self.total_time
@@ -169,20 +160,13 @@ class Playing:
 			output.append('  Position: {0}s'.format(position))
 		elif total_time is not None and position != 0:
 			output.append('Total time: {0}s'.format(total_time))
-		if position is not None:
-			pyatv_api.javaHandler.statusEvent("position", str(position))
-		if total_time is not None:
-			pyatv_api.javaHandler.statusEvent("total_time", str(total_time))
 
 		if self.repeat is not None:
 			output.append('	Repeat: {0}'.format(
 				convert.repeat_str(self.repeat)))
-			pyatv_api.javaHandler.statusEvent("repeat",
-				str(convert.repeat_str(self.repeat)))
 
 		if self.shuffle is not None:
 			output.append('   Shuffle: {0}'.format(self.shuffle))
-			pyatv_api.javaHandler.statusEvent("shuffle", str(self.shuffle))
 
 		return '\n'.join(output)
 
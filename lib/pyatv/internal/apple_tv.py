@@ -21,14 +21,30 @@ from pyatv.interface import (AppleTV, RemoteControl, Metadata,
 from pyatv.airplay.srp import (SRPAuthHandler, new_credentials)
 from pyatv.airplay.auth import (AuthenticationVerifier, DeviceAuthenticator)
 
-import pyatv_api
-
 _LOGGER = logging.getLogger(__name__)
 
 _PSU_CMD = 'ctrl-int/1/playstatusupdate?[AUTH]&revision-number={0}'
 _ARTWORK_CMD = 'ctrl-int/1/nowplayingartwork?mw=1024&mh=576&[AUTH]'
 _CTRL_PROMPT_CMD = 'ctrl-int/1/controlpromptentry?[AUTH]&prompt-id=0'
 
+# Swipe gestures of the arrow keys: (direction, time, point1, point2)
+_GESTURES = {
+	'up': [('Down', 0, 20, 275), ('Move', 1, 20, 270), ('Move', 2, 20, 265),
+	       ('Move', 3, 20, 260), ('Move', 4, 20, 255), ('Move', 5, 20, 250),
+	       ('Up', 6, 20, 250)],
+	'down': [('Down', 0, 20, 250), ('Move', 1, 20, 255), ('Move', 2, 20, 260),
+	         ('Move', 3, 20, 265), ('Move', 4, 20, 270), ('Move', 5, 20, 275),
+	         ('Up', 6, 20, 275)],
+	'left': [('Down', 0, 75, 100), ('Move', 1, 70, 100), ('Move', 3, 65, 100),
+	         ('Move', 4, 60, 100), ('Move', 5, 55, 100), ('Move', 6, 50, 100),
+	         ('Up', 7, 50, 100)],
+	'right': [('Down', 0, 50, 100), ('Move', 1, 55, 100), ('Move', 3, 60, 100),
+	          ('Move', 4, 65, 100), ('Move', 5, 70, 100), ('Move', 6, 75, 100),
+	          ('Up', 7, 75, 100)],
+}
+GESTURE_FRAMES_FULL = 7
+GESTURE_FRAMES_MIN = 2  # touchDown + touchUp
+
 
 class BaseAppleTV:
 	"""Common protocol logic used to interact with an Apple TV."""
@@ -107,54 +123,46 @@ class RemoteControlInternal(RemoteControl):
 		"""Initialize remote control instance."""
 		super().__init__()
 		self.apple_tv = apple_tv
+		self.gesture_frames = GESTURE_FRAMES_FULL  # frames per arrow key
+		self._gestures = {}
 
 	@asyncio.coroutine
 	def up(self):
 		"""Press key up."""
-		yield from self._send_commands(
-			self._move('Down', 0, 20, 275),
-			self._move('Move', 1, 20, 270),
-			self._move('Move', 2, 20, 265),
-			self._move('Move', 3, 20, 260),
-			self._move('Move', 4, 20, 255),
-			self._move('Move', 5, 20, 250),
-			self._move('Up', 6, 20, 250))
+		yield from self._send_commands(*self._gesture('up'))
 
 	@asyncio.coroutine
 	def down(self):
 		"""Press key down."""
-		yield from self._send_commands(
-			self._move('Down', 0, 20, 250),
-			self._move('Move', 1, 20, 255),
-			self._move('Move', 2, 20, 260),
-			self._move('Move', 3, 20, 265),
-			self._move('Move', 4, 20, 270),
-			self._move('Move', 5, 20, 275),
-			self._move('Up', 6, 20, 275))
+		yield from self._send_commands(*self._gesture('down'))
 
 	@asyncio.coroutine
 	def left(self):
 		"""Press key left."""
-		yield from self._send_commands(
-			self._move('Down', 0, 75, 100),
-			self._move('Move', 1, 70, 100),
-			self._move('Move', 3, 65, 100),
-			self._move('Move', 4, 60, 100),
-			self._move('Move', 5, 55, 100),
-			self._move('Move', 6, 50, 100),
-			self._move('Up', 7, 50, 100))
+		yield from self._send_commands(*self._gesture('left'))
 
 	@asyncio.coroutine
 	def right(self):
 		"""Press key right."""
-		yield from self._send_commands(
-			self._move('Down', 0, 50, 100),
-			self._move('Move', 1, 55, 100),
-			self._move('Move', 3, 60, 100),
-			self._move('Move', 4, 65, 100),
-			self._move('Move', 5, 70, 100),
-			self._move('Move', 6, 75, 100),
-			self._move('Up', 7, 75, 100))
+		yield from self._send_commands(*self._gesture('right'))
+
+	def _gesture(self, key):
+		"""Return the (cached) frames of a swipe gesture.
+
+		The full gesture is touchDown, five touchMoves and touchUp. With
+		less frames the first and the last frame are kept and the moves
+		in between are picked evenly, so the swipe covers the same
+		distance with less requests.
+		"""
+		frames = max(GESTURE_FRAMES_MIN, min(self.gesture_frames, GESTURE_FRAMES_FULL))
+		cmds = self._gestures.get((key, frames))
+		if cmds is None:
+			full = _GESTURES[key]
+			last = len(full) - 1
+			cmds = [self._move(*full[round(i * last / (frames - 1))])
+			        for i in range(frames)]
+			self._gestures[(key, frames)] = cmds
+		return cmds
 
 	@staticmethod
 	def _move(direction, time, point1, point2):
@@ -316,7 +324,6 @@ class MetadataInternal(Metadata):
 	@property
 	def device_id(self):
 		"""Return a unique identifier for current device."""
-		pyatv_api.javaHandler.generatedDeviceId(self._device_id)
 		return self._device_id
 
 	def artwork(self):
@@ -326,9 +333,7 @@ class MetadataInternal(Metadata):
 	@asyncio.coroutine
 	def artwork_url(self):
 		"""Return artwork URL for what is currently playing."""
-		url = self.apple_tv.artwork_url()
-		pyatv_api.javaHandler.statusEvent("artwork_url", url)
-		return url
+		return self.apple_tv.artwork_url()
 
 	@asyncio.coroutine
 	def playing(self):
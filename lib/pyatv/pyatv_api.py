@@ -4,28 +4,47 @@ import sys
 import inspect
 import logging
 import binascii
+import hashlib
+import ipaddress
 import asyncio
+import concurrent.futures
+import threading
 import traceback
 
 import argparse
 from argparse import ArgumentTypeError
-from zeroconf import Zeroconf
+from zeroconf import ServiceBrowser, Zeroconf
+from aiohttp import ClientError, ClientSession
 
 import pyatv
 import pyatv.pairing
-from pyatv import (const, dmap, exceptions, interface, tag_definitions)
+from pyatv import (const, convert, dmap, exceptions, interface, net, tag_definitions)
 from pyatv.interface import retrieve_commands
 
 import jpy
 
-javaHandler = None
+PUSH_RETRY_DELAY = 5  # seconds before a failed push update long-poll gets restarted
+PUSH_MAX_RETRY_DELAY = 300  # the delay doubles with every failure in a row up to this limit
+PAIRING_TIMEOUT = 60  # seconds the remote is offered for pairing
+SESSION_CLOSE_TIMEOUT = 5  # seconds to wait for the logout and the loop thread when a session gets closed
+RUN_GRACE = 1.0  # seconds the caller waits beyond the deadline for the loop to cancel the call
+
+# return codes, see LibPyATV.RESULT_xxx
+RESULT_OK = 0
+RESULT_FAILED = 1  # command failed, but the device responded
+RESULT_UNREACHABLE = 2  # connection error or deadline expired
+
+def _is_unreachable(e):
+	"""True if the exception means the device didn't respond (counted by the circuit breaker)."""
+	return isinstance(e, (asyncio.TimeoutError, concurrent.futures.TimeoutError, ClientError, OSError))
 
 class GlobalCommands:
     """Commands not bound to a specific device."""
-    def __init__(self, args, loop):
+    def __init__(self, args, loop, handler):
         """Initialize a new instance of GlobalCommands."""
         self.args = args
         self.loop = loop
+        self.handler = handler
 
     @asyncio.coroutine
     def help(self):
@@ -59,13 +78,13 @@ class GlobalCommands:
         """Scan for Apple TVs on the network."""
         atvs = yield from pyatv.scan_for_apple_tvs(
             self.loop, timeout=self.args.scan_timeout, only_home_sharing=False)
-        _print_found_apple_tvs(atvs)
+        _print_found_apple_tvs(atvs, self.handler)
         return 0
 
     @asyncio.coroutine
     def pair(self):
         """Pair pyatv as a remote control with an Apple TV."""
-        global javaHandler
+        javaHandler = self.handler
         handler = pyatv.pair_with_apple_tv(
             self.loop, self.args.pin_code, self.args.remote_name,
             pairing_guid=self.args.pairing_guid)
@@ -82,7 +101,11 @@ class GlobalCommands:
         javaHandler.info('Note: If remote does not show up, try rebooting your Apple TV')
 
         yield from handler.start(Zeroconf())
-        yield from self.loop.run_in_executor(None, sys.stdin.readline)
+        # no console inside the binding, wait until the device paired or PAIRING_TIMEOUT expired
+        for _ in range(PAIRING_TIMEOUT):
+            if handler.has_paired:
+                break
+            yield from asyncio.sleep(1, loop=self.loop)
         yield from handler.stop()
 
         # Give some feedback to the user
@@ -90,7 +113,7 @@ class GlobalCommands:
             javaHandler.info('Pairing seems to have succeeded, yey!')
             javaHandler.info('Login id from paring: 0x{}'.format(
                 handler.pairing_guid))
-            javaHandler.statusEvent("login_id", handler.pairing_guid())
+            javaHandler.statusEvent("login_id", "0x" + handler.pairing_guid)
         else:
             javaHandler.info('ERROR: Timeout on pairing!')
             raise AuthenticationError('Timeout on pairing!')
@@ -105,15 +128,16 @@ class DeviceCommands:
 	These commands are not part of the API but are provided by atvremote.
 	"""
 
-	def __init__(self, atv, loop):
+	def __init__(self, atv, loop, handler):
 		"""Initialize a new instance of DeviceCommands."""
 		self.atv = atv
 		self.loop = loop
+		self.handler = handler
 
 	@asyncio.coroutine
 	def artwork_save(self):
 		"""Download artwork and save it to artwork.png."""
-		global javaHandler
+		javaHandler = self.handler
 		artwork = yield from self.atv.metadata.artwork()
 		if artwork is not None:
 			fname = '/tmp/ohpyatv-artwork.png'
@@ -138,7 +162,7 @@ class DeviceCommands:
 	@asyncio.coroutine
 	def auth(self):
 		"""Perform AirPlay device authentication."""
-		global javaHandler
+		javaHandler = self.handler
 		credentials = yield from self.atv.airplay.generate_credentials()
 		yield from self.atv.airplay.load_credentials(credentials)
 
@@ -160,20 +184,123 @@ class DeviceCommands:
 
 
 class PushListener:
-    """Internal listener for push updates."""
+    """Listener for push updates, passes every play status change to the thing handler."""
+
+    def __init__(self, handler=None):
+        self.handler = handler
+        self.stopped = True
+        self.failures = 0
+
+    def playstatus_update(self, _, playstatus):
+        """Forward what is currently playing when it changes."""
+        if self.handler is not None:
+            if self.failures > 0:
+                self.handler.debug("Push updates restored after {0} failure(s)".format(self.failures))
+                self.handler.pushResult(RESULT_OK, "")
+            _publish_playing(self.handler, playstatus)
+        self.failures = 0
+
+    def playstatus_error(self, updater, exception):
+        """Report the error and restart push updates, the delay doubles with every failure in a row."""
+        if self.stopped:
+            return
+        self.failures += 1
+        delay = min(PUSH_RETRY_DELAY * 2 ** min(self.failures - 1, 10), PUSH_MAX_RETRY_DELAY)
+        if self.handler is not None:
+            message = "Push update failed (retry in {0}s): {1}".format(delay, exception)
+            if self.failures == 1:
+                self.handler.info(message)
+            else:
+                self.handler.debug(message)
+            result = RESULT_UNREACHABLE if _is_unreachable(exception) else RESULT_FAILED
+            self.handler.pushResult(result, str(exception))
+        updater.start(initial_delay=delay)
+
+
+class DiscoveryListener:
+	"""Passive zeroconf listener, reports Apple TVs as they come and go.
+
+	The zeroconf browser threads call add_service()/remove_service(), no
+	event loop and no bridge call is involved. A device may announce the
+	home sharing and the touch-able service, it's reported once (with the
+	login id when home sharing is enabled) and removed when the last service
+	is gone. The handler gets deviceAdded(name, address, login_id) and
+	deviceRemoved(address).
+	"""
+
+	def __init__(self, handler):
+		self.handler = handler
+		self._lock = threading.Lock()
+		self._services = {}  # service name -> address
+		self._devices = {}  # address -> (name, login_id)
+		self._zeroconf = Zeroconf()
+		self._browsers = [
+			ServiceBrowser(self._zeroconf, pyatv.HOMESHARING_SERVICE, self),
+			ServiceBrowser(self._zeroconf, pyatv.DEVICE_SERVICE, self)]
+
+	def add_service(self, zeroconf, service_type, name):
+		info = zeroconf.get_service_info(service_type, name)
+		if info is None or info.address is None:
+			return
+		address = str(ipaddress.ip_address(info.address))
+		try:
+			if service_type == pyatv.HOMESHARING_SERVICE:
+				device = (info.properties[b'Name'].decode('utf-8'),
+					info.properties[b'hG'].decode('utf-8'))
+			else:
+				device = (info.properties[b'CtlN'].decode('utf-8'), '')
+		except KeyError as e:
+			self.handler.info('Incomplete service {0}: {1}'.format(name, e))
+			return
+
+		with self._lock:
+			self._services[name] = address
+			known = self._devices.get(address)
+			if known is not None and (known[1] or not device[1]):
+				return  # already reported (with the same or a better login id)
+			self._devices[address] = device
+		self.handler.deviceAdded(device[0], address, device[1])
+
+	def update_service(self, zeroconf, service_type, name):
+		self.add_service(zeroconf, service_type, name)
+
+	def remove_service(self, zeroconf, service_type, name):
+		with self._lock:
+			address = self._services.pop(name, None)
+			if address is None or address in self._services.values():
+				return
+			self._devices.pop(address, None)
+		self.handler.deviceRemoved(address)
 
-    @staticmethod
-    def playstatus_update(_, playstatus):
-        """Print what is currently playing when it changes."""
-        print('Play Status:')
-        print(str(playstatus))
-        print(20*'-')
+	def close(self):
+		for browser in self._browsers:
+			browser.cancel()
+		self._zeroconf.close()
 
-    @staticmethod
-    def playstatus_error(updater, exception):
-        """Inform about an error and restart push updates."""
-        print("An error occurred (restarting): {0}".format(exception))
-        updater.start(initial_delay=1)
+
+def _publish_playing(handler, playing):
+	"""Pass the play status to the thing handler.
+
+	All fields go in a single call with a fixed order (codes as int, texts
+	as str or None), one Python->Java crossing per status update.
+	"""
+	play_state = playing.play_state
+	repeat = playing.repeat
+	handler.playStatusEvent(
+		playing.media_type,
+		-1 if play_state is None else play_state,
+		_strip(playing.title),
+		_strip(playing.artist),
+		_strip(playing.album),
+		_strip(playing.genre),
+		playing.position or 0,
+		playing.total_time or 0,
+		-1 if repeat is None else repeat,
+		bool(playing.shuffle))
+
+
+def _strip(text):
+	return None if text is None else text.strip("\0")
 
 
 def _in_range(lower, upper, allow_none=False):
@@ -186,9 +313,8 @@ def _in_range(lower, upper, allow_none=False):
             lower, upper))
     return _checker
 
-@asyncio.coroutine
-def cli_handler(loop, jargs):
-	"""Application starts here."""	
+def _create_parser():
+	"""Build the argument parser (only once, it's re-used for every call)."""
 	parser = argparse.ArgumentParser()
 
 	parser.add_argument('command', nargs='+',
@@ -200,6 +326,12 @@ def cli_handler(loop, jargs):
 	parser.add_argument('-t', '--scan-timeout', help='timeout when scanning',
 	                    dest='scan_timeout', type=_in_range(1, 10),
 	                    metavar='TIMEOUT', default=3)
+	parser.add_argument('--key-delay', help='delay between keys in ms',
+	                    dest='key_delay', type=int, default=0)
+	parser.add_argument('--timeout', help='deadline of the call in ms, the command gets cancelled when it expires',
+	                    dest='timeout', type=int, default=0)
+	parser.add_argument('--gesture-frames', help='frames per arrow key gesture (2-7)',
+	                    dest='gesture_frames', type=_in_range(2, 8), default=7)
 	parser.add_argument('--version', action='version',
 	                    help='version of atvremote and pyatv',
 	                    version='%(prog)s {0}'.format(const.__version__))
@@ -231,8 +363,38 @@ def cli_handler(loop, jargs):
 	                   action='store_true', dest='verbose')
 	debug.add_argument('--debug', help='print debug information',
 	                   action='store_true', dest='debug')
+	return parser
+
+_parser = None
+
+def _parse_args(jargs):
+	global _parser
+	if _parser is None:
+		_parser = _create_parser()
+	args = _parser.parse_args(jargs)
 
-	args = parser.parse_args(jargs)
+	# Sanity checks that not can be done natively by argparse
+	if (args.login_id and not args.address) or \
+	    (not args.login_id and args.address):
+	    _parser.error('both --login_id and --address must be given')
+	return args
+
+_commands = {}
+
+def _commands_of(obj):
+	"""Cached version of retrieve_commands(), the command set never changes."""
+	cmds = _commands.get(obj)
+	if cmds is None:
+		cmds = retrieve_commands(obj)
+		_commands[obj] = cmds
+	return cmds
+
+def _is_global_command(args):
+	return args.command[0] in _commands_of(GlobalCommands)
+
+@asyncio.coroutine
+def cli_handler(loop, args, handler):
+	"""Application starts here."""	
 	loglevel = logging.WARNING
 	if args.verbose:
 	    loglevel = logging.INFO
@@ -242,27 +404,19 @@ def cli_handler(loop, jargs):
 	                    format='%(levelname)s: %(message)s')
 	logging.getLogger('requests').setLevel(logging.WARNING)
 
-	# Sanity checks that not can be done natively by argparse
-	if (args.login_id and not args.address) or \
-	    (not args.login_id and args.address):
-	    parser.error('both --login_id and --address must be given')
-
-	cmds = retrieve_commands(GlobalCommands)
-
-	if args.command[0] in cmds:
-		glob_cmds = GlobalCommands(args, loop)
+	if _is_global_command(args):
+		glob_cmds = GlobalCommands(args, loop, handler)
 		return (yield from _exec_command(
-           	glob_cmds, args.command[0], print_result=False))
+           	handler, glob_cmds, args.command[0], print_result=False))
 #	if args.autodiscover:
 #		return (yield from _handle_autodiscover(args, loop))
 	if args.login_id:
-		return (yield from _handle_commands(args, loop))
+		return (yield from _handle_commands(args, loop, handler))
 
 #	logging.error('To autodiscover an Apple TV, add -a')
 	return 1
 
-def _print_found_apple_tvs(atvs, outstream=sys.stdout):
-	global javaHandler
+def _print_found_apple_tvs(atvs, javaHandler):
 	javaHandler.debug('Discovery completed')
 	jsonDevices = ""
 	i = 0
@@ -276,7 +430,7 @@ def _print_found_apple_tvs(atvs, outstream=sys.stdout):
 			i = i+1
 			if i != 1:
 				jsonDevices = jsonDevices+", "
-			inner = '"name":"{0}", "ipAddress":"{1}", "loginId":"{2}"'.format(apple_tv.name, apple_tv.address, apple_tv.login_id)
+			inner = '"name":"{0}", "ipAddress":"{1}", "loginId":"{2}"'.format(apple_tv.name, apple_tv.address, apple_tv.login_id or '')
 			jsonDevices = jsonDevices + "{ "+inner+" }"
 
 		javaHandler.devicesDiscovered(str('{ "devices": [ '+ jsonDevices  +' ] }'))
@@ -328,68 +482,173 @@ def _extract_command_with_args(cmd):
 	return command, args
 
 
-@asyncio.coroutine
-def _handle_commands(args, loop):
-	#print('_handle_commands: name={0}, address={1}, login_id={2}'.format(args.name, args.address, args.login_id))
-	details = pyatv.AppleTVDevice(args.name, args.address, args.login_id)
-	atv = pyatv.connect_to_apple_tv(details, loop)
-	atv.push_updater.listener = PushListener()
+class DeviceSession:
+	"""Long-lived connection to one Apple TV.
+
+	Keeps the event loop, the aiohttp session (HTTP keep-alive) and the DAAP
+	session id across calls, so a status poll or key press costs a single
+	HTTP round trip. Login is done once, daap._do() logs in again when
+	the device expired the session.
+
+	The event loop runs in a background thread, which allows the push
+	updater to long-poll the device between calls.
+	"""
 
+	def __init__(self, name, address, login_id):
+		self.loop = asyncio.new_event_loop()
+		details = pyatv.AppleTVDevice(name, address, login_id)
+		self.atv = pyatv.connect_to_apple_tv(details, self.loop)
+		self.listener = PushListener()
+		self.atv.push_updater.listener = self.listener
+		self._thread = threading.Thread(target=self._run_loop,
+			name='pyatv-{0}'.format(address), daemon=True)
+		self._thread.start()
+
+	def _run_loop(self):
+		asyncio.set_event_loop(self.loop)
+		self.loop.run_forever()
+
+	def run(self, coro, timeout=None):
+		"""Execute a coroutine on the device loop and wait for the result.
+
+		With a timeout (seconds) the coroutine gets cancelled when the
+		deadline expires and asyncio.TimeoutError is raised.
+		"""
+		if timeout is None:
+			return asyncio.run_coroutine_threadsafe(coro, self.loop).result()
+		future = asyncio.run_coroutine_threadsafe(
+			asyncio.wait_for(coro, timeout, loop=self.loop), self.loop)
+		try:
+			return future.result(timeout + RUN_GRACE)
+		except concurrent.futures.TimeoutError:
+			future.cancel()  # the loop is blocked, don't leave the call behind
+			raise
+
+	def subscribe(self, handler):
+		"""Start push updates (revision based long-poll) for this device."""
+		def _start():
+			self.atv.push_updater.stop()
+			self.listener.handler = handler
+			self.listener.stopped = False
+			self.listener.failures = 0
+			self.atv.push_updater.start()
+		self.loop.call_soon_threadsafe(_start)
+
+	def unsubscribe(self):
+		"""Stop push updates."""
+		def _stop():
+			self.listener.stopped = True  # a restart already queued by playstatus_error must not run
+			self.atv.push_updater.stop()
+			self.listener.handler = None
+		self.loop.call_soon_threadsafe(_stop)
+
+	def close(self):
+		"""Logout and stop the loop thread, neither blocks longer than SESSION_CLOSE_TIMEOUT."""
+		try:
+			self.unsubscribe()
+			self.run(self.atv.logout(), SESSION_CLOSE_TIMEOUT)
+		finally:
+			self.loop.call_soon_threadsafe(self.loop.stop)
+			self._thread.join(SESSION_CLOSE_TIMEOUT)
+			if not self._thread.is_alive():
+				self.loop.close()
+
+# Open device sessions, key is (address, login_id). Concurrent calls for a
+# new device must not create two sessions (and leak a loop thread), so
+# get-or-create and removal are done under the lock.
+_sessions = {}
+_sessions_lock = threading.Lock()
+
+def _get_session(name, address, login_id):
+	key = (address, login_id)
+	with _sessions_lock:
+		session = _sessions.get(key)
+		if session is None:
+			session = DeviceSession(name, address, login_id)
+			_sessions[key] = session
+		return session
+
+def _close_session(address, login_id):
+	with _sessions_lock:
+		session = _sessions.pop((address, login_id), None)
+	if session is not None:
+		session.close()
+
+@asyncio.coroutine
+def _probe_device(loop, address, timeout):
+	session = ClientSession(loop=loop)
 	try:
-		if args.airplay_credentials is not None:
-			yield from atv.airplay.load_credentials(args.airplay_credentials)
-
-		for cmd in args.command:
-			print('process cmd "{0}"'.format(str(cmd)))
-			if cmd is None:
-				break
-			ret = yield from _handle_device_command(args, cmd, atv, loop)
-			if ret != 0:
-				return ret
+		http = net.HttpSession(session, 'http://{0}:3689/'.format(address))
+		_, status = yield from asyncio.wait_for(
+			http.get_data('server-info', timeout=timeout), timeout, loop=loop)
 	finally:
-		yield from atv.logout()
+		closing = session.close()
+		if asyncio.iscoroutine(closing) or isinstance(closing, asyncio.Future):
+			yield from closing
+	if not 200 <= status < 300:
+		return ''
+	# same id as AppleTVInternal.device_id, no session required
+	return hashlib.sha256(address.encode('utf-8')).hexdigest()
+
+@asyncio.coroutine
+def _handle_commands(args, loop, handler):
+	#print('_handle_commands: name={0}, address={1}, login_id={2}'.format(args.name, args.address, args.login_id))
+	atv = _get_session(args.name, args.address, args.login_id).atv
+
+	if args.airplay_credentials is not None:
+		yield from atv.airplay.load_credentials(args.airplay_credentials)
+	atv.remote_control.gesture_frames = args.gesture_frames
+
+	for i, cmd in enumerate(args.command):
+		print('process cmd "{0}"'.format(str(cmd)))
+		if cmd is None:
+			break
+		if i > 0 and args.key_delay > 0:
+			yield from asyncio.sleep(args.key_delay / 1000.0, loop=loop)
+		ret = yield from _handle_device_command(args, cmd, atv, loop, handler)
+		if ret != 0:
+			return ret
 
 	return 0
 
 # pylint: disable=too-many-return-statements
 @asyncio.coroutine
-def _handle_device_command(args, cmdline, atv, loop):
+def _handle_device_command(args, cmdline, atv, loop, handler):
 	# TODO: Add these to array and use a loop
-	device = retrieve_commands(DeviceCommands)
-	ctrl = retrieve_commands(interface.RemoteControl)
-	metadata = retrieve_commands(interface.Metadata)
-	playing = retrieve_commands(interface.Playing)
-	airplay = retrieve_commands(interface.AirPlay)
+	device = _commands_of(DeviceCommands)
+	ctrl = _commands_of(interface.RemoteControl)
+	metadata = _commands_of(interface.Metadata)
+	playing = _commands_of(interface.Playing)
+	airplay = _commands_of(interface.AirPlay)
 
 	# Parse input command and argument from user
 	cmd, cmd_args = _extract_command_with_args(cmdline)
 	if cmd in device:
 		return (yield from _exec_command(
-			DeviceCommands(atv, loop), cmd, False, *cmd_args))
+			handler, DeviceCommands(atv, loop, handler), cmd, False, *cmd_args))
 
 	if cmd in ctrl:
 		return (yield from _exec_command(
-			atv.remote_control, cmd, True, *cmd_args))
+			handler, atv.remote_control, cmd, True, *cmd_args))
 
 	if cmd in metadata:
 		return (yield from _exec_command(
-			atv.metadata, cmd, True, *cmd_args))
+			handler, atv.metadata, cmd, True, *cmd_args))
 
 	if cmd in playing:
 		playing_resp = yield from atv.metadata.playing()
 		return (yield from _exec_command(
-			playing_resp, cmd, True, *cmd_args))
+			handler, playing_resp, cmd, True, *cmd_args))
 
 	if cmd in airplay:
 		return (yield from _exec_command(
-				atv.airplay, cmd, True, *cmd_args))
+				handler, atv.airplay, cmd, True, *cmd_args))
 
 	logging.error('Unknown command: %s', args.command[0])
 	return 1
 
 @asyncio.coroutine
-def _exec_command(obj, command, print_result, *args):
-	global javaHandler
+def _exec_command(javaHandler, obj, command, print_result, *args):
 	try:
 		# If the command to execute is a @property, the value returned by that
 		# property will be stored in tmp. Otherwise it's a coroutine and we
@@ -399,31 +658,84 @@ def _exec_command(obj, command, print_result, *args):
 			value = yield from tmp(*args)
 		else:
 			value = tmp
+		if isinstance(value, interface.Playing):
+			_publish_playing(javaHandler, value)
+		elif command == 'device_id':
+			javaHandler.generatedDeviceId(str(value))
+		elif command == 'artwork_url':
+			javaHandler.statusEvent('artwork_url', str(value))
+		elif command == 'artwork':
+			# bytes are passed as byte[] (buffer protocol), no file, no printing
+			javaHandler.artworkEvent(value if value else None)
+			return 0
 
 		# Some commands might produce output themselves (especially non-API
 		# commands), so don't print the return code they might give
 		if print_result:
-			_pretty_print(value)
+			_pretty_print(value, javaHandler)
 			return 0
 		return value
 	except NotImplementedError:
-		javaHandler.info("Command '%s' is not supported by device", command)
+		javaHandler.info("Command '{0}' is not supported by device".format(command))
 	except exceptions.AuthenticationError as ex:
-		javaHandler.info('Authentication error: %s', str(ex))
+		javaHandler.info('Authentication error: {0}'.format(str(ex)))
 	except Exception as e:
 		javaHandler.info("Exception in _exec_command(): "+str(e))
 		traceback.print_exc(file=sys.stderr)
 		return 1
 	return 1
 
-def _pretty_print(data):
-	global javaHandler
+# Remote keys of the typed API, explicit dispatch instead of getattr()
+_KEYS = {
+	'up': lambda rc: rc.up(),
+	'down': lambda rc: rc.down(),
+	'left': lambda rc: rc.left(),
+	'right': lambda rc: rc.right(),
+	'select': lambda rc: rc.select(),
+	'menu': lambda rc: rc.menu(),
+	'top_menu': lambda rc: rc.top_menu(),
+	'play': lambda rc: rc.play(),
+	'pause': lambda rc: rc.pause(),
+	'stop': lambda rc: rc.stop(),
+	'next': lambda rc: rc.next(),
+	'previous': lambda rc: rc.previous(),
+}
+
+@asyncio.coroutine
+def _playing(handler, atv):
+	playing = yield from atv.metadata.playing()
+	_publish_playing(handler, playing)
+	return 0
+
+@asyncio.coroutine
+def _press(atv, keys, key_delay, gesture_frames, loop):
+	actions = [_KEYS[key] for key in keys]  # KeyError before anything is sent
+	atv.remote_control.gesture_frames = gesture_frames
+	for i, action in enumerate(actions):
+		if i > 0 and key_delay > 0:
+			yield from asyncio.sleep(key_delay / 1000.0, loop=loop)
+		yield from action(atv.remote_control)
+	return 0
+
+@asyncio.coroutine
+def _artwork(handler, atv):
+	value = yield from atv.metadata.artwork()
+	# bytes are passed as byte[] (buffer protocol)
+	handler.artworkEvent(value if value else None)
+	return 0
+
+@asyncio.coroutine
+def _remote(coro):
+	yield from coro
+	return 0
+
+def _pretty_print(data, javaHandler):
 	try:
 		if data is None:
 			return
 		if isinstance(data, bytes):
 			print(binascii.hexlify(data))
-		elif isinstance(data, list):
+		elif isinstance(data, (list, dmap.DmapView)):
 			print(dmap.pprint(data, tag_definitions.lookup_tag))
 		else:
 			print(data)
@@ -435,41 +747,181 @@ class PyATV:
 	def init(self, handler):
 		#sys.stdout = open('/tmp/ohpyatv-console.log', 'w')
 		#sys.stderr = open('/tmp/ohpyatv-error.log', 'w')
-		global javaHandler
+		# no module state: every call passes its own handler (thing handler or
+		# call context), results of concurrent calls can't get mixed up
 		try:
 			print('Initialize Java access', flush=True)
-			javaHandler = handler
-			javaHandler.info('Embeeded PyATV {0}'.format(const.__version__))
+			handler.info('Embeeded PyATV {0}'.format(const.__version__))
 		except Exception as e:
 			print("Unable to access Java class: "+str(e), flush=True)
 			return 1
 		return 0				
 
 	def exec(self, handler, jargs):
-		"""Start the asyncio event loop and runs the application."""
+		"""Run the command on the event loop of the addressed device."""
 		# Helper method so that the coroutine exits cleanly if an exception
 		# happens (which would leave resources dangling)
 		@asyncio.coroutine
-		def _run_application(loop, jargs):
-			global javaHandler
+		def _run_application(loop, args):
 			try:
-				return (yield from cli_handler(loop, jargs))
+				return (yield from cli_handler(loop, args, handler))
 			except SystemExit:
 				pass  # sys.exit() was used - do nothing
+			except asyncio.CancelledError:
+				raise  # deadline expired
 			except Exception as e:
-				javaHandler.info("Exception in _run_application(): "+str(e))
+				handler.info("Exception in _run_application(): "+str(e))
+				if _is_unreachable(e):
+					return RESULT_UNREACHABLE
 				traceback.print_exc(file=sys.stderr)
 				return 1
 
+		# Calls for different devices may run concurrently (one lane per device
+		# on the Java side), so everything is bound to the handler of this call
 		try:
-			global javaHandler
-			javaHandler = handler
-			self.args = jargs
-			loop = asyncio.new_event_loop()
+			args = _parse_args([arg for arg in jargs if arg is not None])
+			timeout = args.timeout / 1000.0 if args.timeout > 0 else None
+			if args.login_id and not _is_global_command(args):
+				session = _get_session(args.name, args.address, args.login_id)
+				return session.run(_run_application(session.loop, args), timeout)
+			loop = self._global_loop()
 			asyncio.set_event_loop(loop)
-			return loop.run_until_complete(_run_application(loop, jargs))
+			coro = _run_application(loop, args)
+			if timeout is not None:
+				coro = asyncio.wait_for(coro, timeout, loop=loop)
+			return loop.run_until_complete(coro)
+		except SystemExit:
+			return 1  # invalid arguments, argparse already reported it
+		except Exception as e:
+			handler.info("Exception in exec(): "+str(e))
+			return RESULT_UNREACHABLE if _is_unreachable(e) else 1
+
+		return 0
+
+	def subscribe(self, handler, address, login_id):
+		"""Enable push updates, play status changes are passed to handler.statusEvent()."""
+		try:
+			_get_session('Apple TV', address, login_id).subscribe(handler)
 		except Exception as e:
-			javaHandler.info("Exception in exec(): "+str(e))
+			handler.info("Unable to start push updates: "+str(e))
 			return 1
+		return 0
 
+	def unsubscribe(self, address, login_id):
+		"""Disable push updates for the device."""
+		session = _sessions.get((address, login_id))
+		if session is not None:
+			session.unsubscribe()
 		return 0
+
+	def close(self, address, login_id):
+		"""Close the session of a device, e.g. when the thing is disposed."""
+		try:
+			_close_session(address, login_id)
+		except Exception as e:
+			print("Unable to close session: "+str(e), flush=True)
+			return 1
+		return 0
+
+	# Typed API (LibPyATV.PyATVProxy): primitive arguments, no argv building
+	# or argparse, the call runs directly on the loop of the device session.
+	# Results are passed to the handler, the return code is RESULT_xxx.
+	# timeout is the remaining deadline (ms) of the Java call, the coroutine
+	# gets cancelled when it expires.
+
+	def playing(self, handler, address, login_id, timeout):
+		"""Poll the play status, passed to handler.playStatusEvent()."""
+		return self._device_call(handler, address, login_id, 'playing', timeout,
+			lambda session: _playing(handler, session.atv))
+
+	def press(self, handler, address, login_id, keys, key_delay, gesture_frames, timeout):
+		"""Press one or more remote keys, key_delay (ms) between the keys.
+
+		gesture_frames is the number of requests per arrow key (2-7).
+		"""
+		keys = [str(key) for key in keys]
+		return self._device_call(handler, address, login_id, 'press', timeout,
+			lambda session: _press(session.atv, keys, key_delay, gesture_frames, session.loop))
+
+	def setPosition(self, handler, address, login_id, seconds, timeout):
+		"""Seek to the position (seconds)."""
+		return self._device_call(handler, address, login_id, 'set_position', timeout,
+			lambda session: _remote(session.atv.remote_control.set_position(seconds)))
+
+	def setShuffle(self, handler, address, login_id, is_on, timeout):
+		"""Change shuffle mode to on or off."""
+		return self._device_call(handler, address, login_id, 'set_shuffle', timeout,
+			lambda session: _remote(session.atv.remote_control.set_shuffle(bool(is_on))))
+
+	def setRepeat(self, handler, address, login_id, mode, timeout):
+		"""Change repeat mode (see const.REPEAT_STATE_xxx)."""
+		return self._device_call(handler, address, login_id, 'set_repeat', timeout,
+			lambda session: _remote(session.atv.remote_control.set_repeat(mode)))
+
+	def artwork(self, handler, address, login_id, timeout):
+		"""Request the artwork, passed to handler.artworkEvent()."""
+		return self._device_call(handler, address, login_id, 'artwork', timeout,
+			lambda session: _artwork(handler, session.atv))
+
+	def _device_call(self, handler, address, login_id, name, timeout, coro):
+		try:
+			session = _get_session('Apple TV', address, login_id)
+			return session.run(coro(session), timeout / 1000.0 if timeout > 0 else None)
+		except (asyncio.TimeoutError, concurrent.futures.TimeoutError):
+			handler.info("No response for {0}() within {1}ms, cancelled".format(name, timeout))
+			return RESULT_UNREACHABLE
+		except NotImplementedError:
+			handler.info("Command '{0}' is not supported by device".format(name))
+		except KeyError as e:
+			handler.info("Unknown key: {0}".format(e))
+		except exceptions.AuthenticationError as ex:
+			handler.info('Authentication error: {0}'.format(str(ex)))
+		except Exception as e:
+			handler.info("Exception in {0}(): {1}".format(name, str(e)))
+			if _is_unreachable(e):
+				return RESULT_UNREACHABLE
+			traceback.print_exc(file=sys.stderr)
+		return RESULT_FAILED
+
+	def probe(self, handler, address, login_id, timeout):
+		"""Unicast probe of a device (server-info without login or session).
+
+		Returns the device id or '' if the device didn't answer within
+		timeout (ms). Each probe runs on a private event loop, probes of
+		several devices may run concurrently.
+		"""
+		loop = asyncio.new_event_loop()
+		try:
+			return loop.run_until_complete(_probe_device(loop, address, timeout / 1000.0))
+		except Exception as e:
+			handler.debug('Probe of {0} failed: {1}'.format(address, e))
+			return ''
+		finally:
+			loop.close()
+
+	# names follow the Java proxy interface (LibPyATV.PyATVProxy)
+	def startDiscovery(self, handler):
+		"""Start the passive zeroconf listener, returns immediately."""
+		try:
+			self.stopDiscovery()
+			self.discovery = DiscoveryListener(handler)
+		except Exception as e:
+			handler.info("Unable to start discovery: "+str(e))
+			return 1
+		return 0
+
+	def stopDiscovery(self):
+		"""Stop the zeroconf listener."""
+		listener = getattr(self, 'discovery', None)
+		self.discovery = None
+		if listener is not None:
+			listener.close()
+		return 0
+
+	def _global_loop(self):
+		"""Loop for commands not bound to a device (scan, pair)."""
+		loop = getattr(self, 'loop', None)
+		if loop is None or loop.is_closed():
+			loop = asyncio.new_event_loop()
+			self.loop = loop
+		return loop
@@ -102,7 +102,9 @@ _TAGS = {
 }
 
 
+_UNKNOWN_TAG = DmapTag(_read_unknown, 'unknown tag')
+
+
 def lookup_tag(name):
     """Look up a tag based on its key. Returns a DmapTag."""
-    return next((_TAGS[t] for t in _TAGS if t == name),
-                DmapTag(_read_unknown, 'unknown tag'))
+    return _TAGS.get(name, _UNKNOWN_TAG)
@@ -2,8 +2,8 @@
 
 
 def read_str(data, start, length):
-    """Extract a string from a position in a sequence."""
-    return data[start:start+length].decode('utf-8')
+    """Extract a string from a position in a sequence (bytes or memoryview)."""
+    return str(data[start:start+length], 'utf-8')
 
 
 def read_uint(data, start, length):
@@ -18,7 +18,7 @@ def read_bool(data, start, length):
 
 def read_raw(data, start, length):
     """Extract raw data from a position in a sequence."""
-    return data[start:start+length]
+    return bytes(data[start:start+length])
 
 
 # pylint: disable=unused-argument
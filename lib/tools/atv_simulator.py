@@ -0,0 +1,377 @@
+#!/usr/bin/env python3
+"""Simulate one or more Apple TVs (DAAP/DACP) for load tests of the binding.
+
+Every simulated device listens on its own loopback address (127.0.0.1,
+127.0.0.2, ...) on the DAAP port 3689 and implements the subset of the
+protocol used by the bundled pyatv:
+
+	GET  /login                                 session handling
+	GET  /server-info
+	GET  /ctrl-int/1/playstatusupdate           revision based long-poll
+	GET  /ctrl-int/1/nowplayingartwork
+	POST /ctrl-int/1/controlpromptentry         select/menu/topmenu, gestures
+	POST /ctrl-int/1/play|pause|playpause|stop|nextitem|previtem
+	POST /ctrl-int/1/setproperty                position, shuffle, repeat
+
+Responses are encoded with the helpers from pyatv/tags.py, so they match
+what tag_definitions.py expects. Latency and faults can be injected and
+the devices play a script of tracks (changing every --track-interval sec),
+so push updates are triggered without any client activity. Swipe gestures
+with less than --min-gesture-frames requests are counted as ignored, like
+a device which misses the key.
+
+Example (10 devices, 20-50ms latency, 1% errors):
+
+	python3 lib/tools/atv_simulator.py --devices 10 --latency 20 --jitter 30 --error-rate 0.01
+
+Any login id is accepted, e.g. pairing guid 0x0000000000000001.
+"""
+
+import argparse
+import asyncio
+import ipaddress
+import json
+import os
+import random
+import signal
+import sys
+import time
+
+from aiohttp import web
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', 'pyatv'))
+import tags  # noqa: E402 pylint: disable=wrong-import-position
+
+DAAP_PORT = 3689
+
+# pyatv const.py
+PLAY_STATE_PAUSED = 3
+PLAY_STATE_PLAYING = 4
+MEDIA_KIND_SONG = 2
+MEDIA_KIND_MOVIE = 3
+
+DEFAULT_SCRIPT = [
+	{'title': 'Simulated Song', 'artist': 'Simulator', 'album': 'Load Test', 'genre': 'Pop',
+	 'kind': MEDIA_KIND_SONG, 'length': 215},
+	{'title': 'Another Song', 'artist': 'Simulator', 'album': 'Load Test', 'genre': 'Rock',
+	 'kind': MEDIA_KIND_SONG, 'length': 187},
+	{'title': 'Simulated Movie', 'artist': '', 'album': '', 'genre': '',
+	 'kind': MEDIA_KIND_MOVIE, 'length': 5400},
+]
+
+# 1x1 pixel PNG
+ARTWORK = bytes.fromhex(
+	'89504e470d0a1a0a0000000d49484452000000010000000108060000001f15c489'
+	'0000000d49444154789c6360000002000001e221bc330000000049454e44ae426082')
+
+
+class Faults:
+	"""Injected latency and faults (shared by all devices)."""
+
+	def __init__(self, args):
+		self.latency = args.latency / 1000.0
+		self.jitter = args.jitter / 1000.0
+		self.error_rate = args.error_rate
+		self.drop_rate = args.drop_rate
+		self.session_expiry = args.session_expiry
+
+	@asyncio.coroutine
+	def delay(self, loop):
+		delay = self.latency + random.random() * self.jitter
+		if delay > 0:
+			yield from asyncio.sleep(delay, loop=loop)
+
+	def error(self):
+		return self.error_rate > 0 and random.random() < self.error_rate
+
+	def drop(self):
+		return self.drop_rate > 0 and random.random() < self.drop_rate
+
+
+class SimulatedDevice:
+	"""State of one simulated Apple TV."""
+
+	def __init__(self, loop, name, address, script, faults, hold, min_gesture_frames):
+		self.loop = loop
+		self.name = name
+		self.address = address
+		self.script = script
+		self.faults = faults
+		self.hold = hold
+		self.min_gesture_frames = min_gesture_frames
+		self.gesture_frames = 0
+		self.sessions = {}
+		self.next_session = random.randint(1000, 100000)
+		self.revision = 1
+		self.changed = asyncio.Condition(loop=loop)
+		self.track = 0
+		self.play_state = PLAY_STATE_PLAYING
+		self.position_ms = 0
+		self.position_time = time.monotonic()
+		self.shuffle = 0
+		self.repeat = 0
+		self.stats = {'requests': 0, 'errors': 0, 'dropped': 0, 'keys': 0, 'updates': 0,
+		              'gestures': 0, 'gestures_ignored': 0}
+
+	# --- play state
+
+	def position(self):
+		pos = self.position_ms
+		if self.play_state == PLAY_STATE_PLAYING:
+			pos += int((time.monotonic() - self.position_time) * 1000)
+		return min(pos, self.script[self.track]['length'] * 1000)
+
+	def set_position(self, position_ms):
+		self.position_ms = max(0, position_ms)
+		self.position_time = time.monotonic()
+
+	@asyncio.coroutine
+	def change(self, **kwargs):
+		"""Apply a change and wake up the pending playstatusupdate requests."""
+		if 'position' in kwargs:
+			self.set_position(kwargs['position'])
+		else:
+			self.set_position(self.position())
+		if 'track' in kwargs:
+			self.track = kwargs['track'] % len(self.script)
+			self.set_position(0)
+		if 'play_state' in kwargs:
+			self.play_state = kwargs['play_state']
+		if 'shuffle' in kwargs:
+			self.shuffle = kwargs['shuffle']
+		if 'repeat' in kwargs:
+			self.repeat = kwargs['repeat']
+		yield from self.changed.acquire()
+		try:
+			self.revision += 1
+			self.stats['updates'] += 1
+			self.changed.notify_all()
+		finally:
+			self.changed.release()
+
+	def playstatus(self):
+		track = self.script[self.track]
+		length = track['length'] * 1000
+		data = tags.uint32_tag('mstt', 200) + \
+			tags.uint32_tag('cmsr', self.revision) + \
+			tags.uint8_tag('caps', self.play_state) + \
+			tags.uint8_tag('cash', self.shuffle) + \
+			tags.uint8_tag('carp', self.repeat) + \
+			tags.uint32_tag('cmmk', track['kind']) + \
+			tags.string_tag('cann', track['title']) + \
+			tags.string_tag('cana', track['artist']) + \
+			tags.string_tag('canl', track['album']) + \
+			tags.string_tag('cang', track['genre']) + \
+			tags.uint32_tag('cant', length - self.position()) + \
+			tags.uint32_tag('cast', length)
+		return tags.container_tag('cmst', data)
+
+	# --- HTTP handlers
+
+	def app(self):
+		app = web.Application(loop=self.loop, middlewares=[self._middleware])
+		app.router.add_route('GET', '/login', self.login)
+		app.router.add_route('GET', '/server-info', self.server_info)
+		app.router.add_route('GET', '/ctrl-int/1/playstatusupdate', self.playstatusupdate)
+		app.router.add_route('GET', '/ctrl-int/1/nowplayingartwork', self.artwork)
+		app.router.add_route('POST', '/ctrl-int/1/controlpromptentry', self.controlprompt)
+		app.router.add_route('POST', '/ctrl-int/1/setproperty', self.setproperty)
+		app.router.add_route('POST', '/ctrl-int/1/{command}', self.ctrl_int)
+		return app
+
+	@asyncio.coroutine
+	def _middleware(self, app, handler):
+		@asyncio.coroutine
+		def middleware(request):
+			self.stats['requests'] += 1
+			if not request.path.endswith('playstatusupdate'):
+				yield from self.faults.delay(self.loop)
+			if self.faults.drop():
+				self.stats['dropped'] += 1
+				request.transport.close()
+				return web.Response(status=500)
+			if self.faults.error():
+				self.stats['errors'] += 1
+				return web.Response(status=503)
+			if request.path not in ('/login', '/server-info') and not self._valid_session(request):
+				return web.Response(status=403)
+			return (yield from handler(request))
+		return middleware
+
+	def _valid_session(self, request):
+		try:
+			session = int(request.query.get('session-id', '0'))
+		except ValueError:
+			return False
+		created = self.sessions.get(session)
+		if created is None:
+			return False
+		if self.faults.session_expiry > 0 and time.monotonic() - created > self.faults.session_expiry:
+			del self.sessions[session]
+			return False
+		return True
+
+	@staticmethod
+	def _dmap(data, status=200):
+		return web.Response(body=data, status=status,
+		                    content_type='application/x-dmap-tagged')
+
+	@asyncio.coroutine
+	def login(self, request):
+		self.next_session += 1
+		self.sessions[self.next_session] = time.monotonic()
+		return self._dmap(tags.container_tag(
+			'mlog', tags.uint32_tag('mstt', 200) + tags.uint32_tag('mlid', self.next_session)))
+
+	@asyncio.coroutine
+	def server_info(self, request):
+		return self._dmap(tags.container_tag(
+			'msrv', tags.uint32_tag('mstt', 200) + tags.string_tag('minm', self.name)))
+
+	@asyncio.coroutine
+	def playstatusupdate(self, request):
+		revision = int(request.query.get('revision-number', '0'))
+		if revision != 0 and revision == self.revision:
+			# long-poll: hold the request until the state changes
+			yield from self.changed.acquire()
+			try:
+				if self.hold > 0:
+					yield from asyncio.wait_for(self.changed.wait(), self.hold, loop=self.loop)
+				else:
+					yield from self.changed.wait()
+			except asyncio.TimeoutError:
+				pass
+			finally:
+				self.changed.release()
+		return self._dmap(self.playstatus())
+
+	@asyncio.coroutine
+	def artwork(self, request):
+		if self.script[self.track]['kind'] != MEDIA_KIND_SONG:
+			return web.Response(status=204)
+		return web.Response(body=ARTWORK, content_type='image/png')
+
+	@asyncio.coroutine
+	def controlprompt(self, request):
+		# the body contains cmbe (select, menu, topmenu or a touch gesture), no state change
+		body = yield from request.read()
+		if b'touchDown' in body:
+			self.gesture_frames = 1
+		elif b'touchMove' in body:
+			self.gesture_frames += 1
+		elif b'touchUp' in body:
+			self.gesture_frames += 1
+			if self.gesture_frames >= self.min_gesture_frames:
+				self.stats['gestures'] += 1
+				self.stats['keys'] += 1
+			else:
+				self.stats['gestures_ignored'] += 1
+		else:
+			self.stats['keys'] += 1
+		return web.Response(status=204)
+
+	@asyncio.coroutine
+	def ctrl_int(self, request):
+		command = request.match_info['command']
+		self.stats['keys'] += 1
+		if command == 'play':
+			yield from self.change(play_state=PLAY_STATE_PLAYING)
+		elif command in ('pause', 'stop'):
+			yield from self.change(play_state=PLAY_STATE_PAUSED)
+		elif command == 'playpause':
+			yield from self.change(play_state=PLAY_STATE_PAUSED if self.play_state == PLAY_STATE_PLAYING
+			                       else PLAY_STATE_PLAYING)
+		elif command == 'nextitem':
+			yield from self.change(track=self.track + 1)
+		elif command == 'previtem':
+			yield from self.change(track=self.track - 1)
+		else:
+			return web.Response(status=404)
+		return web.Response(status=204)
+
+	@asyncio.coroutine
+	def setproperty(self, request):
+		query = request.query
+		if 'dacp.playingtime' in query:
+			yield from self.change(position=int(query['dacp.playingtime']))
+		elif 'dacp.shufflestate' in query:
+			yield from self.change(shuffle=int(query['dacp.shufflestate']))
+		elif 'dacp.repeatstate' in query:
+			yield from self.change(repeat=int(query['dacp.repeatstate']))
+		else:
+			return web.Response(status=400)
+		return web.Response(status=204)
+
+	# --- scripted playback
+
+	@asyncio.coroutine
+	def play_script(self, interval):
+		"""Switch to the next track every interval seconds (randomized start)."""
+		yield from asyncio.sleep(random.random() * interval, loop=self.loop)
+		while True:
+			yield from self.change(track=self.track + 1, play_state=PLAY_STATE_PLAYING)
+			yield from asyncio.sleep(interval, loop=self.loop)
+
+
+def _create_parser():
+	parser = argparse.ArgumentParser(description='Apple TV (DAAP) simulator')
+	parser.add_argument('--devices', type=int, default=1, help='number of simulated devices')
+	parser.add_argument('--base-address', default='127.0.0.1',
+	                    help='address of the first device, the others use the following addresses')
+	parser.add_argument('--port', type=int, default=DAAP_PORT, help='DAAP port')
+	parser.add_argument('--latency', type=int, default=0, help='latency per request in ms')
+	parser.add_argument('--jitter', type=int, default=0, help='random extra latency in ms')
+	parser.add_argument('--error-rate', type=float, default=0.0, help='fraction of requests failing with 503')
+	parser.add_argument('--drop-rate', type=float, default=0.0, help='fraction of connections dropped')
+	parser.add_argument('--session-expiry', type=int, default=0, help='sec after which a login expires, 0=never')
+	parser.add_argument('--hold', type=int, default=0, help='max sec a playstatusupdate is held, 0=until change')
+	parser.add_argument('--track-interval', type=int, default=0, help='sec between scripted track changes, 0=off')
+	parser.add_argument('--min-gesture-frames', type=int, default=2,
+	                    help='requests a swipe gesture needs to be accepted (2-7)')
+	parser.add_argument('--script', help='JSON file with a list of tracks (title, artist, album, genre, kind, length)')
+	return parser
+
+
+def main():
+	args = _create_parser().parse_args()
+	script = DEFAULT_SCRIPT
+	if args.script:
+		with open(args.script) as f:
+			script = json.load(f)
+
+	loop = asyncio.get_event_loop()
+	faults = Faults(args)
+	devices = []
+	servers = []
+	base = ipaddress.ip_address(args.base_address)
+	for i in range(args.devices):
+		address = str(base + i)
+		device = SimulatedDevice(loop, 'Simulated ATV {0}'.format(i + 1), address, script, faults, args.hold,
+		                         args.min_gesture_frames)
+		handler = device.app().make_handler()
+		servers.append(loop.run_until_complete(loop.create_server(handler, address, args.port)))
+		if args.track_interval > 0:
+			asyncio.ensure_future(device.play_script(args.track_interval), loop=loop)
+		devices.append(device)
+
+	print(json.dumps({'devices': [{'name': d.name, 'ipAddress': d.address, 'port': args.port}
+	                              for d in devices]}))
+	sys.stdout.flush()
+
+	try:
+		loop.add_signal_handler(signal.SIGTERM, loop.stop)
+	except NotImplementedError:
+		pass
+	try:
+		loop.run_forever()
+	except KeyboardInterrupt:
+		pass
+	finally:
+		for server in servers:
+			server.close()
+		for device in devices:
+			print('{0} ({1}): {2}'.format(device.name, device.address, device.stats))
+
+
+if __name__ == '__main__':
+	main()
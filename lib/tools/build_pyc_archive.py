@@ -0,0 +1,83 @@
+#!/usr/bin/env python3
+"""Build a zipimport-ready pyatv archive with precompiled bytecode.
+
+The archive has the same layout as lib/pyatv.zip, but contains only .pyc
+files compiled by the running interpreter. The binding puts it on sys.path
+as it is, so there is neither an extraction nor a compile step on startup.
+
+Bytecode is interpreter specific, run the script with the Python version of
+the target platform, e.g.
+
+	python3.5 lib/tools/build_pyc_archive.py lib/jpy/lib.linux-armv7l-3.5
+	python3.6 lib/tools/build_pyc_archive.py lib/jpy/lib.linux-armv7l-3.6
+"""
+
+import os
+import py_compile
+import sys
+import tempfile
+import zipfile
+
+ARCHIVE_NAME = 'pyatv-pyc.zip'
+
+# fixed timestamp, the archive content only changes with the sources
+ZIP_DATE = (2019, 5, 2, 0, 0, 0)
+
+
+def _target_version(target_dir):
+	"""Python version from the platform folder name, e.g. lib.linux-armv7l-3.5"""
+	suffix = os.path.basename(os.path.normpath(target_dir)).rsplit('-', 1)[-1]
+	parts = suffix.split('.')
+	if len(parts) == 2 and parts[0].isdigit() and parts[1].isdigit():
+		return int(parts[0]), int(parts[1])
+	return None
+
+
+def build(src_dir, target_dir):
+	version = _target_version(target_dir)
+	if version is not None and version != sys.version_info[:2]:
+		print('Target {0} requires Python {1}.{2}, running {3}.{4}'.format(
+		    target_dir, version[0], version[1], sys.version_info[0], sys.version_info[1]))
+		return 1
+
+	base = os.path.dirname(os.path.abspath(src_dir))
+	archive = os.path.join(target_dir, ARCHIVE_NAME)
+	count = 0
+	with tempfile.TemporaryDirectory() as tmp:
+		with zipfile.ZipFile(archive, 'w', zipfile.ZIP_DEFLATED) as zf:
+			for root, dirs, files in os.walk(src_dir):
+				dirs[:] = sorted(d for d in dirs if d != '__pycache__')
+				rel_dir = os.path.relpath(root, base)
+				zf.writestr(zipfile.ZipInfo(rel_dir + '/', ZIP_DATE), b'')
+				for name in sorted(files):
+					if not name.endswith('.py'):
+						continue
+					source = os.path.join(root, name)
+					rel = os.path.join(rel_dir, name)
+					# zipimport only finds legacy (sourceless) .pyc next to the module path
+					cfile = os.path.join(tmp, str(count) + '.pyc')
+					py_compile.compile(source, cfile=cfile, dfile=rel, doraise=True)
+					info = zipfile.ZipInfo(rel + 'c', ZIP_DATE)
+					info.compress_type = zipfile.ZIP_DEFLATED
+					info.external_attr = 0o644 << 16
+					with open(cfile, 'rb') as f:
+						zf.writestr(info, f.read())
+					count += 1
+
+	print('{0}: {1} modules compiled for Python {2}.{3}'.format(
+	    archive, count, sys.version_info[0], sys.version_info[1]))
+	return 0
+
+
+def main():
+	if len(sys.argv) < 2:
+		print('usage: build_pyc_archive.py <target dir> [<pyatv source dir>]')
+		return 1
+	target_dir = sys.argv[1]
+	src_dir = sys.argv[2] if len(sys.argv) > 2 else os.path.join(
+	    os.path.dirname(os.path.abspath(__file__)), '..', 'pyatv')
+	return build(os.path.normpath(src_dir), target_dir)
+
+
+if __name__ == '__main__':
+	sys.exit(main())
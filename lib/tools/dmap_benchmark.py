@@ -0,0 +1,134 @@
+#!/usr/bin/env python3
+"""Micro-benchmark for the DMAP parser of the bundled pyatv.
+
+Compares the eager parser (dmap.parse() + dmap.first() on the parsed list)
+with the lazy DmapView, which daap.py uses for every response. Each
+iteration parses one playstatusupdate response and reads the fields like
+PlayingInternal and _publish_playing() do on every poll.
+
+Without arguments built-in payloads are used. They have the tags in the
+same order and size as the responses of an Apple-TV 3 (music, video and
+idle), including the tags the binding never reads. Recorded responses can
+be passed as files (raw binary or hex dump), e.g. captured with
+`atvremote playing` or from the simulator:
+
+	python3 lib/tools/dmap_benchmark.py
+	python3 lib/tools/dmap_benchmark.py --iterations 50000 playstatus.bin
+"""
+
+import argparse
+import binascii
+import os
+import sys
+import timeit
+import types
+
+# load the parser modules without pyatv/__init__.py, which needs aiohttp and zeroconf
+_PACKAGE = types.ModuleType('pyatv')
+_PACKAGE.__path__ = [os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', 'pyatv')]
+sys.modules['pyatv'] = _PACKAGE
+from pyatv import dmap, tags  # noqa: E402 pylint: disable=wrong-import-position
+from pyatv.tag_definitions import lookup_tag  # noqa: E402 pylint: disable=wrong-import-position
+
+# (tag, ...) paths in the order PlayingInternal/_publish_playing read them
+FIELDS = [
+	('cmst', 'cmsr'),  # playstatus revision
+	('cmst', 'caps'),  # media_type
+	('cmst', 'cmmk'),
+	('cmst', 'cana'),
+	('cmst', 'canl'),
+	('cmst', 'caps'),  # play_state
+	('cmst', 'cann'),
+	('cmst', 'cana'),
+	('cmst', 'canl'),
+	('cmst', 'cang'),
+	('cmst', 'cast'),  # position = total_time - remaining
+	('cmst', 'cant'),
+	('cmst', 'cast'),  # total_time
+	('cmst', 'carp'),
+	('cmst', 'cash'),
+]
+
+
+def _playstatus(play_state, kind, title, artist, album, genre, length):
+	data = tags.uint32_tag('mstt', 200) + \
+		tags.uint32_tag('cmsr', 1234) + \
+		tags.uint8_tag('caps', play_state) + \
+		tags.uint8_tag('cash', 0) + \
+		tags.uint8_tag('carp', 0) + \
+		tags.uint8_tag('cafs', 0) + \
+		tags.uint8_tag('cavs', 0) + \
+		tags.uint32_tag('caas', 2) + \
+		tags.uint32_tag('caar', 6) + \
+		tags.uint8_tag('cafe', 0) + \
+		tags.uint8_tag('cave', 0) + \
+		tags.uint8_tag('cavc', 1) + \
+		tags.uint8_tag('ceQA', 0) + \
+		tags.uint32_tag('cmmk', kind) + \
+		tags.uint64_tag('asai', 0x2e1b3a6d0e1c5f40)
+	if play_state:
+		data += tags.string_tag('cann', title) + \
+			tags.string_tag('cana', artist) + \
+			tags.string_tag('canl', album) + \
+			tags.string_tag('cang', genre) + \
+			tags.raw_tag('ceSD', bytes(range(256)) * 2) + \
+			tags.uint32_tag('casc', 1) + \
+			tags.uint32_tag('caks', 6) + \
+			tags.uint32_tag('cant', length * 1000 // 3) + \
+			tags.uint32_tag('cast', length * 1000) + \
+			tags.uint32_tag('casu', 1)
+	return tags.container_tag('cmst', data)
+
+
+BUILTIN = {
+	'music': _playstatus(4, 2, 'Simulated Song', 'Simulator', 'Load Test', 'Pop', 215),
+	'video': _playstatus(3, 3, 'Simulated Movie with a somewhat longer title', '', '', '', 5400),
+	'idle': _playstatus(0, 0, '', '', '', '', 0),
+}
+
+
+def _load(path):
+	with open(path, 'rb') as f:
+		data = f.read()
+	try:
+		return binascii.unhexlify(b''.join(data.split()))
+	except (binascii.Error, ValueError):
+		return data
+
+
+def _eager(data):
+	parsed = dmap.parse(data, lookup_tag)
+	return [dmap.first(parsed, *path) for path in FIELDS]
+
+
+def _lazy(data):
+	view = dmap.DmapView(data, lookup_tag)
+	return [dmap.first(view, *path) for path in FIELDS]
+
+
+def _measure(func, data, iterations, repeat):
+	best = min(timeit.repeat(lambda: func(data), number=iterations, repeat=repeat))
+	return best / iterations * 1e6
+
+
+def main():
+	parser = argparse.ArgumentParser(description='Benchmark the DMAP parsers')
+	parser.add_argument('payloads', nargs='*', help='recorded playstatus responses (binary or hex)')
+	parser.add_argument('--iterations', type=int, default=20000)
+	parser.add_argument('--repeat', type=int, default=5)
+	args = parser.parse_args()
+
+	payloads = {os.path.basename(p): _load(p) for p in args.payloads} if args.payloads else BUILTIN
+	print('{0:<24} {1:>6} {2:>12} {3:>12} {4:>8}'.format('payload', 'bytes', 'eager us/op', 'lazy us/op', 'speedup'))
+	for name, data in payloads.items():
+		if _eager(data) != _lazy(data):
+			print('{0}: results differ, eager={1} lazy={2}'.format(name, _eager(data), _lazy(data)))
+			return 1
+		eager = _measure(_eager, data, args.iterations, args.repeat)
+		lazy = _measure(_lazy, data, args.iterations, args.repeat)
+		print('{0:<24} {1:>6} {2:>12.2f} {3:>12.2f} {4:>7.1f}x'.format(name, len(data), eager, lazy, eager / lazy))
+	return 0
+
+
+if __name__ == '__main__':
+	sys.exit(main())
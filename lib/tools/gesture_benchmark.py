@@ -0,0 +1,87 @@
+#!/usr/bin/env python3
+"""Measure the arrow keys with different gesture lengths.
+
+An arrow key is a swipe gesture: touchDown, five touchMoves and touchUp,
+each one a controlpromptentry request. The requests of a gesture must be
+sent in order, so a key costs one round trip per frame. The thing option
+gestureFrames (2-7) sends shorter gestures with the same start and end
+point. This tool presses the arrow keys with every gesture length and
+reports the time per key, so you can pick the shortest length your device
+still accepts.
+
+The keys are pressed in pairs (right/left, down/up), the focus ends where
+it started. Use --confirm to be asked after each length whether the focus
+on the TV moved, e.g.
+
+	python3 lib/tools/gesture_benchmark.py --address 192.168.1.20 --login_id 0x1234 --confirm
+
+Against the simulator (atv_simulator.py --min-gesture-frames 3) the
+ignored gestures show up in its statistics on exit.
+"""
+
+import argparse
+import asyncio
+import os
+import sys
+import time
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..'))
+import pyatv  # noqa: E402 pylint: disable=wrong-import-position
+from pyatv.internal.apple_tv import (  # noqa: E402 pylint: disable=wrong-import-position
+	GESTURE_FRAMES_FULL, GESTURE_FRAMES_MIN)
+
+PAIRS = [('right', 'left'), ('down', 'up')]
+
+
+@asyncio.coroutine
+def _measure(rc, frames, pairs, loop):
+	rc.gesture_frames = frames
+	times = []
+	for i in range(pairs):
+		for key in PAIRS[i % len(PAIRS)]:
+			start = time.monotonic()
+			yield from getattr(rc, key)()
+			times.append(time.monotonic() - start)
+		yield from asyncio.sleep(0.2, loop=loop)  # let the UI settle
+	times.sort()
+	return times[len(times) // 2] * 1000, times[-1] * 1000
+
+
+@asyncio.coroutine
+def _run(args, loop):
+	details = pyatv.AppleTVDevice('Apple TV', args.address, args.login_id, port=args.port)
+	atv = pyatv.connect_to_apple_tv(details, loop)
+	try:
+		yield from atv.login()
+		rc = atv.remote_control
+		print('{0:>6} {1:>10} {2:>10} {3:>9}'.format('frames', 'median ms', 'max ms', 'accepted'))
+		for frames in range(GESTURE_FRAMES_FULL, GESTURE_FRAMES_MIN - 1, -1):
+			median, worst = yield from _measure(rc, frames, args.pairs, loop)
+			accepted = '-'
+			if args.confirm:
+				answer = yield from loop.run_in_executor(
+					None, input, '{0} frames: did the focus move? [y/n] '.format(frames))
+				accepted = 'yes' if answer.strip().lower().startswith('y') else 'no'
+			print('{0:>6} {1:>10.1f} {2:>10.1f} {3:>9}'.format(frames, median, worst, accepted))
+			if accepted == 'no':
+				break
+	finally:
+		yield from atv.logout()
+
+
+def main():
+	parser = argparse.ArgumentParser(description='Benchmark the gesture length of the arrow keys')
+	parser.add_argument('--address', required=True, help='device ip address')
+	parser.add_argument('--login_id', required=True, help='login id from pairing')
+	parser.add_argument('--port', type=int, default=3689, help='DAAP port')
+	parser.add_argument('--pairs', type=int, default=5, help='key pairs per gesture length')
+	parser.add_argument('--confirm', action='store_true', help='ask whether the focus moved')
+	args = parser.parse_args()
+
+	loop = asyncio.get_event_loop()
+	loop.run_until_complete(_run(args, loop))
+	return 0
+
+
+if __name__ == '__main__':
+	sys.exit(main())
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link AppleTVArtworkCache} keeps the cover art of the recently played media for all devices. It's a LRU cache
+ * bounded by the total size of the images, which are stored in direct buffers (off the Java heap). An empty entry
+ * records that the device has no artwork for this media, so it's not requested again.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVArtworkCache {
+    private static final byte[] NO_ARTWORK = new byte[0];
+
+    private final long maxSize;
+    private long size = 0;
+    private final LinkedHashMap<String, ByteBuffer> images = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param maxSize max total size of the cached images in bytes, 0=disabled
+     */
+    public AppleTVArtworkCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key media identity, see AppleTVPlayStatus.getMediaKey()
+     * @return image data, empty: device has no artwork, null: not cached
+     */
+    public synchronized byte @Nullable [] get(String key) {
+        ByteBuffer image = images.get(key);
+        if (image == null) {
+            return null;
+        }
+        if (image.capacity() == 0) {
+            return NO_ARTWORK;
+        }
+        byte[] data = new byte[image.capacity()];
+        image.duplicate().get(data);
+        return data;
+    }
+
+    /**
+     * Add an image, the least recently used images get removed when the max size is exceeded
+     *
+     * @param key  media identity
+     * @param data image data, empty: device has no artwork
+     */
+    public synchronized void put(String key, byte[] data) {
+        if (data.length > maxSize) {
+            return;
+        }
+        ByteBuffer image = ByteBuffer.allocateDirect(data.length);
+        image.put(data).flip();
+        ByteBuffer old = images.put(key, image);
+        size += data.length - (old != null ? old.capacity() : 0);
+
+        Iterator<Map.Entry<String, ByteBuffer>> it = images.entrySet().iterator();
+        while ((size > maxSize) && it.hasNext()) {
+            Map.Entry<String, ByteBuffer> eldest = it.next();
+            if (!eldest.getKey().equals(key)) {
+                size -= eldest.getValue().capacity();
+                it.remove();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Mime type of the image data (the Apple-TV usually returns PNG)
+     */
+    public static String mimeType(byte[] data) {
+        if ((data.length > 2) && ((data[0] & 0xff) == 0xff) && ((data[1] & 0xff) == 0xd8)) {
+            return "image/jpeg";
+        }
+        return "image/png";
+    }
+}
@@ -8,7 +8,7 @@
  */
 package org.openhab.binding.appletv.internal;
 
-import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.UPDATE_STATUS_INTERVAL;
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
 
 import org.eclipse.jdt.annotation.NonNull;
 
@@ -22,10 +22,16 @@ public class AppleTVBindingConfiguration {
     public String remoteName;
     public Integer updateInterval = UPDATE_STATUS_INTERVAL;
     public String libPath = "";
+    public boolean metrics = false;
+    public int maxCallsPerSecond = MAX_CALLS_PER_SECOND;
+    public int artworkCacheSize = ARTWORK_CACHE_SIZE;
 
     public void update(@NonNull AppleTVBindingConfiguration newConfiguration) {
         this.remoteName = newConfiguration.remoteName;
         this.libPath = newConfiguration.libPath;
         this.updateInterval = newConfiguration.updateInterval;
+        this.metrics = newConfiguration.metrics;
+        this.maxCallsPerSecond = newConfiguration.maxCallsPerSecond;
+        this.artworkCacheSize = newConfiguration.artworkCacheSize;
     }
 }
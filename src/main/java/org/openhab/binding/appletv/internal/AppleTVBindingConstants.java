@@ -10,7 +10,9 @@
  */
 package org.openhab.binding.appletv.internal;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -25,7 +27,7 @@ import org.eclipse.smarthome.core.thing.ThingTypeUID;
 @NonNullByDefault
 public class AppleTVBindingConstants {
 
-    private static final String BINDING_ID = "appletv";
+    public static final String BINDING_ID = "appletv";
 
     // List of all Thing Type UIDs
     public static final ThingTypeUID THING_TYPE_APPLETV = new ThingTypeUID(BINDING_ID, "device");
@@ -40,6 +42,7 @@ public class AppleTVBindingConstants {
     public static final String CHGROUP_CONTROL = "control";
     public static final String CHGROUP_STATUS = "playStatus";
     public static final String CHGROUP_MEDIA = "mediaInformation";
+    public static final String CHGROUP_DIAGNOSTICS = "diagnostics";
 
     public static final String CHANNEL_REMOTE_KEY = "remoteKey";
 
@@ -51,29 +54,33 @@ public class AppleTVBindingConstants {
     public static final String CHANNEL_ARTIST = "artist";
     public static final String CHANNEL_GENRE = "genre";
     public static final String CHANNEL_ARTWORK_URL = "artworkUrl";
+    public static final String CHANNEL_ARTWORK = "artwork";
     public static final String CHANNEL_POSITION = "position";
     public static final String CHANNEL_TOTAL_TIME = "totalTime";
     public static final String CHANNEL_REPEAT_STATE = "repeat";
     public static final String CHANNEL_SHUFFLE = "shuffle";
 
+    public static final String CHANNEL_BRIDGE_CALLS = "bridgeCalls";
+    public static final String CHANNEL_BRIDGE_LATENCY = "bridgeLatency";
+    public static final String CHANNEL_BRIDGE_WAIT = "bridgeWait";
+    public static final String CHANNEL_BRIDGE_FAILURES = "bridgeFailures";
+    public static final String CHANNEL_POLLS_EXECUTED = "pollsExecuted";
+    public static final String CHANNEL_POLLS_SKIPPED = "pollsSkipped";
+    public static final String CHANNEL_STATUS_EVENT_RATE = "statusEventRate";
+    public static final String CHANNEL_QUEUE_DEPTH = "queueDepth";
+    public static final String CHANNEL_COMMANDS_EXECUTED = "commandsExecuted";
+    public static final String CHANNEL_COMMANDS_MERGED = "commandsMerged";
+    public static final String CHANNEL_POLLING_STATE = "pollingState";
+
+    // Keys supported by the remote control
+    public static final Set<String> REMOTE_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("up",
+            "down", "left", "right", "select", "menu", "top_menu", "play", "pause", "stop", "next", "previous")));
+
     // Special keys, will be mapped to the configured key sequences
     public static final String KEY_MOVIE = "movie";
     public static final String KEY_MUSIC = "music";
     public static final String KEY_TVSHOWS = "tvshows";
 
-    // PyATV commands
-    public static final String PLAYSTATUS_STATE = "play_state";
-    public static final String PLAYSTATUS_MEDIA_TYPE = "media_type";
-    public static final String PLAYSTATUS_TITLE = "title";
-    public static final String PLAYSTATUS_ALBUM = "album";
-    public static final String PLAYSTATUS_ARTIST = "artist";
-    public static final String PLAYSTATUS_GENRE = "genre";
-    public static final String PLAYSTATUS_ARTWORK_URL = "artwork_url";
-    public static final String PLAYSTATUS_POSITION = "position";
-    public static final String PLAYSTATUS_TTIME = "total_time";
-    public static final String PLAYSTATUS_REPEAT = "repeat";
-    public static final String PLAYSTATUS_SHUFFLE = "shuffle";
-
     // Media types
     public static final String MEDIA_TYPE_UNKNOWN = "Unknown";
     public static final String MEDIA_TYPE_VIDEO = "Video";
@@ -83,18 +90,19 @@ public class AppleTVBindingConstants {
 
     // Play state
     public static final String PLAY_STATE_IDLE = "Idle";
-    public static final String PLAY_STATE_NO_MEDIA = "No media";
+    public static final String PLAY_STATE_NO_MEDIA = "No Media";
     public static final String PLAY_STATE_LOADING = "Loading";
     public static final String PLAY_STATE_PAUSED = "Paused";
     public static final String PLAY_STATE_PLAYING = "Playing";
-    public static final String PLAY_STATE_FAST_FORWARD = "Fast forward";
-    public static final String PLAY_STATE_FAST_BACKWARD = "Fast backward";
+    public static final String PLAY_STATE_FAST_FORWARD = "Fast Forward";
+    public static final String PLAY_STATE_FAST_BACKWARD = "Fast Backward";
     public static final String PLAY_STATE_OTHER = "Unsupported";
 
     // Repeat state
     public static final String REPEAT_STATE_OFF = "Off";
     public static final String REPEAT_STATE_TRACK = "Track";
     public static final String REPEAT_STATE_ALL = "All";
+    public static final String REPEAT_STATE_OTHER = "Unsupported";
 
     // Shuffle mode
     public static final String SHUFFLE_STATE_ON = "True";
@@ -111,9 +119,42 @@ public class AppleTVBindingConstants {
     public static final String COMMAND_SET_POSITION = "set_position";
     public static final String COMMAND_SET_REPEAT = "set_repeat";
     public static final String COMMAND_SET_SHUFFLE = "set_shuffle";
-    public static final String COMMAND_HASH = "hash";
+    // device commands accepted by the command line interface of the PyATV module (mirrored from the commands of
+    // interface.RemoteControl, Metadata, Playing, AirPlay and DeviceCommands in pyatv_api.py) without REQUEST_COMMANDS
+    public static final Set<String> PYATV_COMMANDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("up",
+            "down", "left", "right", "select", "menu", "top_menu", "play", "pause", "stop", "next", "previous",
+            "set_position", "set_shuffle", "set_repeat", "playing", "artwork", "artwork_url", "artwork_save", "title",
+            "artist", "album", "genre", "media_type", "play_state", "position", "total_time", "repeat", "shuffle",
+            "hash", "play_url")));
+    // commands delivering a result, only through LibPyATV.request() (not accepted on the remoteKey channel)
+    public static final Set<String> REQUEST_COMMANDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(COMMAND_SCAN, COMMAND_AUTH, COMMAND_PAIR, COMMAND_DEVICE_ID)));
+    public static final String PAIRING_REMOTE_NAME = "openHAB";
+
+    // Backends for the play status and simple commands
+    public static final String BACKEND_PYATV = "pyatv";
+    public static final String BACKEND_JAVA = "java";
 
     public static final int UPDATE_STATUS_INTERVAL = 3; // check for updates every x sec
-    public static final int UPDATE_SKIP_COUNT = 5; // update every x triggers or when a key was pressed
-    public static final int PYATV_ACCESS_TIMEOUT = 10; // timeout for claiming the pyatv library access
+    public static final int POLL_TICK_INTERVAL = 1; // sec, the polling policy is checked every tick
+    public static final int POLL_FAST_INTERVAL = 1; // sec between polls after a key press or state change
+    public static final int POLL_FAST_COUNT = 5; // number of fast polls
+    public static final int POLL_IDLE_INTERVAL = 15; // sec between polls while idle or paused
+    public static final int POLL_MAX_BACKOFF = 300; // max sec between polls while the device is unreachable
+    public static final int POLL_FULL_INTERVAL = 300; // sec between full polls while idle (heartbeat mode)
+    public static final int POLL_JITTER = 10; // +/- % added to the polling intervals, devices drift apart
+    public static final int ARTWORK_CACHE_SIZE = 8192; // default size of the artwork cache in KB (all devices)
+    public static final int MAX_CALLS_PER_SECOND = 10; // default budget for calls into PyATV (all devices)
+    public static final int UPDATE_DIAGNOSTICS_INTERVAL = 60; // publish diagnostic channels every x sec
+    public static final int GESTURE_FRAMES_MIN = 2; // requests per arrow key: touch down and up
+    public static final int GESTURE_FRAMES_MAX = 7; // requests per arrow key: touch down, 5 moves, touch up
+    public static final int PROBE_TIMEOUT = 3000; // ms to wait for the server-info response of a device
+    public static final int DAAP_PORT = 3689; // port of the DAAP service on the Apple-TV
+    public static final int DAAP_TIMEOUT = 10000; // ms, connect/read timeout of the Java DAAP client
+    public static final int PYATV_ACCESS_TIMEOUT = 10; // timeout for claiming the device lane in the pyatv library
+    public static final int PYATV_CALL_TIMEOUT = 15; // sec, deadline of a key/command incl. waiting for the lane
+    public static final int PYATV_POLL_TIMEOUT = 5; // sec, deadline of a background call (poll, artwork)
+    public static final int BREAKER_FAILURE_THRESHOLD = 3; // failed calls until calls to a device fail fast
+    public static final int BREAKER_RETRY_INTERVAL = 10; // sec until the device gets probed again
+    public static final int BREAKER_MAX_RETRY_INTERVAL = 300; // max sec between two probes (doubled on failure)
 }
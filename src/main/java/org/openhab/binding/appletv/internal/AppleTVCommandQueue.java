@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link AppleTVCommandQueue} decouples channel commands from the bridge calls. Commands are queued and
+ * executed one by one on the given executor, the caller returns immediately. Pending commands get merged:
+ * - consecutive key presses are sent with a single bridge call
+ * - consecutive seeks are folded into one (relative deltas are added up)
+ * - for shuffle/repeat only the last value is kept
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVCommandQueue {
+    private final AppleTVLogger logger = new AppleTVLogger(AppleTVCommandQueue.class, "Queue");
+
+    public enum Type {
+        KEYS,
+        SEEK,
+        SET
+    }
+
+    /**
+     * A queued command, which may represent multiple merged channel commands.
+     */
+    public static class QueuedCommand {
+        public final Type type;
+        public @Nullable AppleTVKeySequence keys; // KEYS: key sequence
+        public String command; // SET: command (e.g. set_shuffle)
+        public String value; // SET: value
+        public long seek; // SEEK: position or delta in sec
+        public boolean relative; // SEEK: true=seek is a delta to the current position
+
+        QueuedCommand(Type type, @Nullable AppleTVKeySequence keys, String command, String value, long seek,
+                boolean relative) {
+            this.type = type;
+            this.keys = keys;
+            this.command = command;
+            this.value = value;
+            this.seek = seek;
+            this.relative = relative;
+        }
+    }
+
+    private final Executor executor;
+    private final Consumer<QueuedCommand> handler;
+    private final Deque<QueuedCommand> pending = new ArrayDeque<>();
+    private boolean running = false;
+    private long mergedCount = 0;
+    private long executedCount = 0;
+
+    public AppleTVCommandQueue(Executor executor, Consumer<QueuedCommand> handler) {
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    /**
+     * Queue a key or key sequence
+     */
+    public void keys(AppleTVKeySequence keySequence) {
+        synchronized (this) {
+            QueuedCommand last = pending.peekLast();
+            AppleTVKeySequence lastKeys = last != null ? last.keys : null;
+            if ((last != null) && (lastKeys != null)) {
+                last.keys = lastKeys.append(keySequence);
+                merged();
+            } else {
+                pending.add(new QueuedCommand(Type.KEYS, keySequence, "", "", 0, false));
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Queue a seek
+     *
+     * @param position position in sec or delta to the current position in sec (relative = true)
+     */
+    public void seek(long position, boolean relative) {
+        synchronized (this) {
+            QueuedCommand last = pending.peekLast();
+            if ((last != null) && (last.type == Type.SEEK)) {
+                if (relative) {
+                    last.seek += position; // absolute+delta stays absolute, delta+delta stays relative
+                } else {
+                    last.seek = position;
+                    last.relative = false;
+                }
+                merged();
+            } else {
+                pending.add(new QueuedCommand(Type.SEEK, null, "", "", position, relative));
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Queue a set command (e.g. set_shuffle, set_repeat). A pending command of the same type is replaced.
+     */
+    public void set(String command, String value) {
+        synchronized (this) {
+            for (QueuedCommand cmd : pending) {
+                if ((cmd.type == Type.SET) && cmd.command.equals(command)) {
+                    cmd.value = value;
+                    merged();
+                    return;
+                }
+            }
+            pending.add(new QueuedCommand(Type.SET, null, command, value, 0, false));
+        }
+        schedule();
+    }
+
+    public synchronized int getDepth() {
+        return pending.size();
+    }
+
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    public synchronized long getExecutedCount() {
+        return executedCount;
+    }
+
+    public synchronized void clear() {
+        pending.clear();
+    }
+
+    private void merged() {
+        mergedCount++;
+        logger.debug("Command merged, queue depth={}, merged={}", pending.size(), mergedCount);
+    }
+
+    private void schedule() {
+        synchronized (this) {
+            if (running) {
+                return; // the running drain will pick up the command
+            }
+            running = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            QueuedCommand cmd;
+            synchronized (this) {
+                cmd = pending.poll();
+                if (cmd == null) {
+                    running = false;
+                    return;
+                }
+                executedCount++;
+            }
+            execute(cmd);
+        }
+    }
+
+    private void execute(QueuedCommand cmd) {
+        try {
+            handler.accept(cmd);
+        } catch (RuntimeException e) {
+            logger.error("Command failed: {} ({})", e.getMessage(), e.getClass());
+        }
+    }
+}
@@ -18,15 +18,23 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.RawType;
 import org.eclipse.smarthome.core.library.types.StringType;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
+import org.eclipse.smarthome.core.thing.ThingStatusInfo;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.openhab.binding.appletv.internal.AppleTVMetrics.CallMetrics;
+import org.openhab.binding.appletv.internal.AppleTVMetrics.DeviceMetrics;
+import org.openhab.binding.appletv.internal.daap.DaapClient;
 
 /**
  * The {@link AppleTVHandler} is responsible for handling commands, which are
@@ -40,21 +48,27 @@ public class AppleTVHandler extends BaseThingHandler {
 
     private AppleTVThingConfiguration config;
     private AppleTVHandlerFactory handlerFactory;
-    private Map<String, Object> playStatus = new HashMap<>();
-    private Map<String, String> channelMap = new HashMap<>();
-
-    private ScheduledFuture<?> statusJob;
-    private int skipUpdate = 0;
-    private int requestUpdates = 1;
-
-    private Long position;
-    private Long totalTime;
+    private AppleTVPlayStatus playStatus = AppleTVPlayStatus.INITIAL;
+    private final char[] timeBuffer = new char[20];
+
+    private final AppleTVCommandQueue commandQueue;
+    private final Map<String, AppleTVKeySequence> keyMacros = new HashMap<>();
+    private @Nullable Object pollHandle;
+    private ScheduledFuture<?> positionJob;
+    private ScheduledFuture<?> diagnosticsJob;
+    private long lastStatusEvents = 0;
+    private long lastDiagnostics = System.nanoTime();
+    private long devicePosition = 0; // last position reported by the device or set by a seek
+    private long positionSyncTime = System.nanoTime(); // monotonic time of the last position sync
+    private @Nullable AppleTVPollingPolicy pollingPolicy;
+    private @Nullable DaapClient daapClient; // Java backend, null: everything goes through PyATV
+    private volatile String artworkKey = ""; // media of the pending artwork request
+    private volatile boolean pushHealthy = false; // push updates deliver the status, no position resync required
 
     public AppleTVHandler(Thing thing, AppleTVHandlerFactory handlerFactory) {
         super(thing);
         this.handlerFactory = handlerFactory;
-        initChannelMap();
-        initPlayStatus();
+        this.commandQueue = new AppleTVCommandQueue(scheduler, this::executeCommand);
     }
 
     @Override
@@ -71,6 +85,16 @@ public class AppleTVHandler extends BaseThingHandler {
             config = getConfigAs(AppleTVThingConfiguration.class);
 
             try {
+                // compile the key macros once, a typo shows up as configuration error
+                keyMacros.clear();
+                addKeyMacro(KEY_MOVIE, config.keyMovie);
+                addKeyMacro(KEY_TVSHOWS, config.keyTVShow);
+                addKeyMacro(KEY_MUSIC, config.keyMusic);
+                if ((config.gestureFrames < GESTURE_FRAMES_MIN) || (config.gestureFrames > GESTURE_FRAMES_MAX)) {
+                    throw new AppleTVException("Gesture Frames must be between " + GESTURE_FRAMES_MIN + " and "
+                            + GESTURE_FRAMES_MAX + ": " + config.gestureFrames);
+                }
+
                 Configuration configuration = this.getConfig();
                 // logger.info("PyATV Library installed in {}", config.libPath);
                 // configuration.remove("libPath");
@@ -80,11 +104,54 @@ public class AppleTVHandler extends BaseThingHandler {
 
                 // pass class instance for callbacks
                 handlerFactory.initPyATV(this);
-                // updatePlayStatus();
-                logger.debug("Starting background status update");
-                if (statusJob == null || statusJob.isCancelled()) {
-                    statusJob = scheduler.scheduleWithFixedDelay(this::updatePlayStatus, 5, UPDATE_STATUS_INTERVAL,
-                            TimeUnit.SECONDS);
+                if (config.doPairing) {
+                    startPairing();
+                }
+                if (StringUtils.isEmpty(getThing().getProperties().get(PROPERTY_ID))) {
+                    // thing not created by the discovery
+                    handlerFactory.requestDeviceId(config.ipAddress, config.loginId, scheduler)
+                            .whenComplete((deviceId, e) -> {
+                                if (e == null) {
+                                    updateProperty(PROPERTY_ID, deviceId);
+                                } else {
+                                    logger.debug("Unable to get the device id: {}", e.getMessage());
+                                }
+                            });
+                }
+                if (BACKEND_JAVA.equals(config.backend)) {
+                    logger.debug("Using the Java DAAP client for play status and simple commands");
+                    daapClient = new DaapClient(config.ipAddress, config.loginId, handlerFactory.getMetrics());
+                }
+                if (config.pushUpdates && (daapClient == null)
+                        && handlerFactory.subscribe(this, config.ipAddress, config.loginId)) {
+                    // the device pushes every change of the play status, no need to poll
+                    logger.debug("Push updates enabled");
+                    pushHealthy = true;
+                } else {
+                    AppleTVBindingConfiguration bindingConfig = handlerFactory.getBindingConfig();
+                    AppleTVPollingPolicy policy = new AppleTVPollingPolicy(
+                            interval(config.pollFastInterval, POLL_FAST_INTERVAL),
+                            interval(config.pollPlayingInterval, bindingConfig.updateInterval),
+                            interval(config.pollIdleInterval, POLL_IDLE_INTERVAL),
+                            interval(config.pollMaxBackoff, POLL_MAX_BACKOFF),
+                            config.pollHeartbeat ? POLL_FULL_INTERVAL : 0, POLL_FAST_COUNT, this::pollStateChanged);
+                    pollingPolicy = policy;
+                    logger.debug("Starting background status update, policy {}", policy);
+                    if (pollHandle == null) {
+                        pollHandle = handlerFactory.registerPoll(this::updatePlayStatus);
+                    }
+                }
+
+                if ((config.positionInterval > 0) && (positionJob == null || positionJob.isCancelled())) {
+                    logger.debug("Starting local position updates every {}s", config.positionInterval);
+                    positionJob = scheduler.scheduleWithFixedDelay(this::updatePosition, config.positionInterval,
+                            config.positionInterval, TimeUnit.SECONDS);
+                }
+
+                if (handlerFactory.getMetrics().isEnabled()
+                        && (diagnosticsJob == null || diagnosticsJob.isCancelled())) {
+                    diagnosticsJob = scheduler.scheduleWithFixedDelay(this::updateDiagnostics,
+                            UPDATE_DIAGNOSTICS_INTERVAL, UPDATE_DIAGNOSTICS_INTERVAL, TimeUnit.SECONDS);
                 }
 
                 updateStatus(ThingStatus.ONLINE);
@@ -107,24 +174,20 @@ public class AppleTVHandler extends BaseThingHandler {
             // command
             switch (channelUID.getIdWithoutGroup()) {
                 case CHANNEL_REMOTE_KEY:
-                    String keySequence = command.toString();
-                    logger.info("Send key(s): {}", keySequence);
-                    switch (keySequence) {
-                        case KEY_MOVIE:
-                            keySequence = config.keyMovie;
-                            break;
-                        case KEY_MUSIC:
-                            keySequence = config.keyMusic;
-                            break;
-                        case KEY_TVSHOWS:
-                            keySequence = config.keyTVShow;
+                    String key = command.toString();
+                    logger.info("Send key(s): {}", key);
+                    AppleTVKeySequence keySequence = keyMacros.get(key);
+                    if (keySequence != null) {
+                        logger.debug("Key '{}' mapped to key sequence '{}'", key, keySequence);
+                    } else {
+                        try {
+                            keySequence = AppleTVKeySequence.compile(key);
+                        } catch (AppleTVException e) {
+                            logger.info("WARNING: {}", e.getMessage());
                             break;
+                        }
                     }
-                    if (!keySequence.equals(command.toString())) {
-                        logger.debug("Key '{}' mapped to key sequence '{}'", command.toString(), keySequence);
-                    }
-                    sendCommands(keySequence);
-                    requestUpdates = UPDATE_SKIP_COUNT;
+                    commandQueue.keys(keySequence);
                     break;
                 case CHANNEL_POSITION:
                     logger.info("Set position to {}", command.toString());
@@ -142,76 +205,377 @@ public class AppleTVHandler extends BaseThingHandler {
         }
     }
 
-    private boolean sendCommands(String commands) {
-        return handlerFactory.sendCommands(commands, this, config.ipAddress, config.loginId);
+    /**
+     * Execute a command from the queue (called by the queue on a scheduler thread)
+     */
+    private void executeCommand(AppleTVCommandQueue.QueuedCommand cmd) {
+        switch (cmd.type) {
+            case KEYS:
+                AppleTVKeySequence keys = cmd.keys;
+                if (keys != null) {
+                    sendKeys(keys);
+                    requestFastPolling();
+                }
+                break;
+            case SEEK:
+                seek(cmd.seek, cmd.relative);
+                break;
+            case SET:
+                sendCommand(cmd.command, cmd.value);
+                break;
+        }
     }
 
     /**
-     * Device device status events
+     * Send the keys with the DAAP client if all keys are simple ctrl-int commands, otherwise through PyATV. A sequence
+     * with other commands than remote keys goes through the command line interface of the PyATV module.
+     */
+    private boolean sendKeys(AppleTVKeySequence keys) {
+        if (!keys.isKeysOnly()) {
+            return handlerFactory.sendCommands(keys.toString(), this, config.ipAddress, config.loginId);
+        }
+        DaapClient daap = daapClient;
+        if ((daap != null) && DaapClient.supportsKeys(keys.getKeys())) {
+            try {
+                daap.sendKeys(keys.getKeys(), config.keyDelay);
+                daapResult("daap key", null);
+                return true;
+            } catch (AppleTVException e) {
+                logger.info("Unable to send keys: {}", e.getMessage());
+                daapResult("daap key", e);
+                return false;
+            }
+        }
+        return handlerFactory.sendKeys(keys, config.keyDelay, config.gestureFrames, this, config.ipAddress,
+                config.loginId);
+    }
+
+    /**
+     * Send a set_xxx command with the DAAP client if possible, otherwise through PyATV
+     *
+     * @param value numeric value
+     */
+    private boolean sendCommand(String command, String value) {
+        DaapClient daap = daapClient;
+        if (daap != null) {
+            try {
+                if (daap.setProperty(command, value)) {
+                    daapResult("daap " + command, null);
+                    return true;
+                }
+            } catch (AppleTVException e) {
+                logger.info("Command {}={} failed: {}", command, value, e.getMessage());
+                daapResult("daap " + command, e);
+                return false;
+            }
+        }
+        try {
+            switch (command) {
+                case COMMAND_SET_POSITION:
+                    return handlerFactory.setPosition(this, config.ipAddress, config.loginId,
+                            Integer.parseInt(value));
+                case COMMAND_SET_SHUFFLE:
+                    return handlerFactory.setShuffle(this, config.ipAddress, config.loginId,
+                            Integer.parseInt(value) != 0);
+                case COMMAND_SET_REPEAT:
+                    return handlerFactory.setRepeat(this, config.ipAddress, config.loginId, Integer.parseInt(value));
+                default:
+                    logger.info("Unsupported command {}", command);
+                    return false;
+            }
+        } catch (NumberFormatException e) {
+            logger.info("Invalid value for {}: {}", command, value);
+            return false;
+        }
+    }
+
+    /**
+     * Request the play status, the result is passed to playStatusEvent()
      *
-     * @return
+     * @return true: successful, false: device didn't respond or bridge call failed
+     */
+    private boolean pollStatus() {
+        DaapClient daap = daapClient;
+        if (daap == null) {
+            return handlerFactory.pollStatus(this, config.ipAddress, config.loginId);
+        }
+        try {
+            AppleTVPlayStatus status = daap.playStatus();
+            daapResult("daap playing", null);
+            playStatusEvent(status);
+            return true;
+        } catch (AppleTVException e) {
+            logger.debug("Unable to get play status: {}", e.getMessage());
+            daapResult("daap playing", e);
+            return false;
+        }
+    }
+
+    /**
+     * Pass the result of a DAAP request to the circuit breaker of the device, which decides about the thing status
+     * like for PyATV calls (see deviceReachable())
+     *
+     * @param e null: request successful, otherwise the failure
+     */
+    private void daapResult(String request, @Nullable AppleTVException e) {
+        handlerFactory.daapResult(this, config.ipAddress, config.loginId, request,
+                (e == null) || !DaapClient.isUnreachable(e));
+    }
+
+    /**
+     * Called by the poll scheduler every POLL_TICK_INTERVAL, the polling policy decides if the device gets polled.
+     * A due poll is deferred to the next tick while the binding-wide call budget is used by interactive commands.
+     * The Java backend doesn't use the interpreter and isn't limited by the call budget, neither does the heartbeat
+     * (server-info) while the device is idle.
      */
     public void updatePlayStatus() {
-        if ((requestUpdates > 0) || (skipUpdate++ % UPDATE_SKIP_COUNT == 0)) {
-            logger.trace("Updating play status");
-            // sendCommands("playing artwork_url");
-            sendCommands(COMMAND_PLAYING);
-            if (requestUpdates > 0) {
-                --requestUpdates;
-                logger.trace("{} more updates requested", requestUpdates);
+        AppleTVPollingPolicy policy = pollingPolicy;
+        if (policy == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (policy.getDelay(now) > 0) {
+            return; // not due yet
+        }
+        // a due poll counts as skipped if it gets deferred (budget used up or another tick started it)
+        boolean heartbeat = policy.isHeartbeat(now);
+        boolean budget = !heartbeat && (daapClient == null);
+        boolean execute = !budget || handlerFactory.reservePoll();
+        if (execute && !policy.tryStartPoll(now)) {
+            execute = false;
+            if (budget) {
+                handlerFactory.releasePoll(); // the slot wasn't used
             }
-        } else {
-            logger.trace("Update skipped {}/{}", (skipUpdate - 1) % UPDATE_SKIP_COUNT, UPDATE_SKIP_COUNT);
+        }
+        handlerFactory.getMetrics().poll(config.ipAddress, execute);
+        if (execute && heartbeat) {
+            logger.trace("Heartbeat, policy {}", policy);
+            boolean successful = DaapClient.heartbeat(config.ipAddress, PROBE_TIMEOUT, handlerFactory.getMetrics());
+            handlerFactory.daapResult(this, config.ipAddress, config.loginId, "heartbeat", successful);
+            policy.heartbeatCompleted(successful, System.nanoTime());
+        } else if (execute) {
+            logger.trace("Updating play status, policy {}", policy);
+            boolean successful = pollStatus();
+            policy.pollCompleted(successful, System.nanoTime());
+        }
+    }
+
+    private void requestFastPolling() {
+        AppleTVPollingPolicy policy = pollingPolicy;
+        if (policy != null) {
+            policy.requestFast(System.nanoTime());
+        }
+    }
+
+    private void pollStateChanged(AppleTVPollingPolicy.PollState state) {
+        AppleTVPollingPolicy policy = pollingPolicy;
+        logger.debug("Polling state changed to {}", policy != null ? policy : state);
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_POLLING_STATE, new StringType(state.toString()));
+    }
+
+    /**
+     * A macro, which is not configured (e.g. .things file without the parameter), is skipped
+     */
+    private void addKeyMacro(String key, @Nullable String sequence) throws AppleTVException {
+        if (StringUtils.isNotBlank(sequence)) {
+            keyMacros.put(key, AppleTVKeySequence.compile(sequence));
         }
     }
 
     /**
-     * Call back for pyatv_api to pass status updates
+     * Per-thing interval override, 0=use the default
+     */
+    private static int interval(int configured, int defaultInterval) {
+        return configured > 0 ? configured : defaultInterval;
+    }
+
+    /**
+     * Call back for pyatv_api to pass single values (e.g. artwork_url, login_id). In push mode this is called from the
+     * PyATV event loop thread.
      *
      * @param prop
      * @param value
      */
-    public void statusEvent(String prop, String input) {
-        String channel = channelMap.get(prop);
-        if (channel != null) {
-            logger.trace("PyATV.Update: {}={}", prop, input);
-            String value = input;
-            if (prop.equals(PLAYSTATUS_POSITION)) { // remember position for delta compution
-                position = Long.parseLong(value);
-                value = Sec2Time(value); // channel expects string
+    public synchronized void statusEvent(String prop, String input) {
+        logger.debug("Event property '{}' with value '{}' for unknown channel", prop, input);
+    }
+
+    /**
+     * Call back for pyatv_api to pass a complete play status with a single call (fixed field order). The codes
+     * are the pyatv values (const.py), -1 = not reported by the device.
+     */
+    public void playStatusEvent(int mediaType, int playState, @Nullable String title, @Nullable String artist,
+            @Nullable String album, @Nullable String genre, long position, long totalTime, int repeat,
+            boolean shuffle) {
+        playStatusEvent(new AppleTVPlayStatus(mediaType, playState, title != null ? title : "",
+                artist != null ? artist : "", album != null ? album : "", genre != null ? genre : "", position,
+                totalTime, repeat, shuffle));
+    }
+
+    /**
+     * A new play status from PyATV or the DAAP client
+     */
+    private void playStatusEvent(AppleTVPlayStatus status) {
+        handlerFactory.getMetrics().statusEvent(config.ipAddress);
+        AppleTVPollingPolicy policy = pollingPolicy;
+        if (policy != null) {
+            policy.setIdle(status.isIdle());
+        }
+        synchronized (this) {
+            syncPosition(status.position);
+            publishPlayStatus(status);
+        }
+    }
+
+    /**
+     * While playing the position is extrapolated locally from the last position reported by the device, no bridge
+     * call is required. A full status update is requested once the last sync is older than positionResync, unless
+     * the push updates deliver every change anyway.
+     */
+    private void updatePosition() {
+        boolean resync = false;
+        synchronized (this) {
+            AppleTVPlayStatus status = playStatus;
+            if (!status.isPlaying()) {
+                return;
             }
-            if (prop.equals(PLAYSTATUS_TTIME)) {
-                totalTime = Long.parseLong(value);
-                value = Sec2Time(value); // channel expects string
+            long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - positionSyncTime);
+            long position = devicePosition + elapsed;
+            if ((status.totalTime > 0) && (position > status.totalTime)) {
+                position = status.totalTime;
+            }
+            publishPlayStatus(status.withPosition(position));
+            resync = !pushHealthy && (config.positionResync > 0) && (elapsed >= config.positionResync);
+        }
+        if (resync) {
+            logger.trace("Resync position with device");
+            if ((daapClient != null) || handlerFactory.reservePoll()) {
+                syncPosition(devicePosition); // avoid repeated requests while the update is pending
+                pollStatus();
             }
+        }
+    }
 
-            boolean updated = updateChannel(channel, prop, value);
-            if (updated && prop.equals(PLAYSTATUS_MEDIA_TYPE) && !value.equals(MEDIA_TYPE_MUSIC)) {
-                // reset album, artist, genre (only valid if Media == Music)
-                logger.trace("Media type is != Music -> reset Album/Artist/Genre");
-                updateChannel(CHANNEL_ALBUM, PLAYSTATUS_ALBUM, "");
-                updateChannel(CHANNEL_ARTIST, PLAYSTATUS_ARTIST, "");
-                updateChannel(CHANNEL_GENRE, PLAYSTATUS_GENRE, "");
+    private synchronized void syncPosition(long position) {
+        devicePosition = position;
+        positionSyncTime = System.nanoTime();
+    }
+
+    /**
+     * Replace the current snapshot and update the channels, which have changed.
+     */
+    private synchronized void publishPlayStatus(AppleTVPlayStatus newStatus) {
+        AppleTVPlayStatus oldStatus = playStatus;
+        playStatus = newStatus;
+        int changed = newStatus.diff(oldStatus);
+        if (changed == 0) {
+            return;
+        }
+        for (AppleTVStatusChannel channel : AppleTVStatusChannel.all()) {
+            if ((changed & channel.mask()) != 0) {
+                String value = newStatus.text(channel, timeBuffer);
+                logger.trace("Updating chanel {} with {}", channel.getChannelId(), value);
+                updateState(channel.getChannelId(), new StringType(value));
             }
-            if (updated && prop.equals(PLAYSTATUS_STATE)) {
-                // if play mode changes request an update
-                logger.trace("Playmode changed -> update");
-                requestUpdates++;
+        }
+        if ((changed & (AppleTVStatusChannel.TITLE.mask() | AppleTVStatusChannel.ALBUM.mask()
+                | AppleTVStatusChannel.ARTIST.mask())) != 0) {
+            updateArtwork(newStatus);
+        }
+        if ((changed & AppleTVStatusChannel.PLAY_MODE.mask()) != 0) {
+            // if play mode changes poll fast for a while
+            logger.trace("Playmode changed -> update");
+            AppleTVPollingPolicy policy = pollingPolicy;
+            if (policy != null) {
+                policy.playStateChanged(newStatus.isPlaying(), System.nanoTime());
             }
-        } else {
-            logger.debug("Event property '{}' with value '{}' for unknown channel", prop, input);
         }
     }
 
-    private boolean updateChannel(String channel, String prop, String value) {
-        Object current = playStatus.get(prop);
-        if ((current != null) && !current.equals(value)) {
-            logger.trace("Updating chanel {} with {}", channel, value);
-            updateState(CHAN_GROUP_PLAYSTATUS + "#" + channel, new StringType(value));
-            playStatus.replace(prop, value);
-            return true;
+    /**
+     * The media has changed: publish the cover from the cache or request it from the device
+     */
+    private void updateArtwork(AppleTVPlayStatus status) {
+        String channelId = CHAN_GROUP_PLAYSTATUS + "#" + CHANNEL_ARTWORK;
+        AppleTVArtworkCache cache = handlerFactory.getArtworkCache();
+        if (!cache.isEnabled() || !isLinked(channelId)) {
+            return;
+        }
+        String key = status.getMediaKey();
+        byte[] image = key.isEmpty() ? null : cache.get(key);
+        if (image != null) {
+            logger.trace("Artwork for '{}' from cache", status.title);
+            updateState(channelId, image.length > 0 ? new RawType(image, AppleTVArtworkCache.mimeType(image))
+                    : UnDefType.UNDEF);
+            return;
+        }
+        updateState(channelId, UnDefType.UNDEF);
+        if (!key.isEmpty() && !key.equals(artworkKey)) {
+            artworkKey = key;
+            scheduler.execute(() -> {
+                // background call like a poll, uses the call budget, but doesn't wait for it
+                if (!handlerFactory.reservePoll()
+                        || !handlerFactory.requestArtwork(this, config.ipAddress, config.loginId)) {
+                    artworkKey = ""; // retry with the next status update
+                }
+            });
+        }
+    }
+
+    /**
+     * Call back for pyatv_api to pass the cover of the current media
+     *
+     * @param image image data, null: no artwork available
+     */
+    public void artworkEvent(byte @Nullable [] image) {
+        String key = artworkKey;
+        artworkKey = "";
+        if (key.isEmpty()) {
+            return;
+        }
+        byte[] data = image != null ? image : new byte[0];
+        handlerFactory.getArtworkCache().put(key, data);
+        if (key.equals(playStatus.getMediaKey()) && (data.length > 0)) {
+            logger.debug("Artwork received ({} bytes)", data.length);
+            updateState(CHAN_GROUP_PLAYSTATUS + "#" + CHANNEL_ARTWORK,
+                    new RawType(data, AppleTVArtworkCache.mimeType(data)));
+        }
+    }
+
+    /**
+     * Publish the bridge and command queue metrics of this device to the diagnostic channels (only if metrics are
+     * enabled)
+     */
+    private void updateDiagnostics() {
+        handlerFactory.getMetrics().commandQueue(config.ipAddress, commandQueue.getDepth(),
+                commandQueue.getExecutedCount(), commandQueue.getMergedCount());
+        DeviceMetrics device = handlerFactory.getMetrics().device(config.ipAddress);
+        long calls = 0, failures = 0, waitNanos = 0, execNanos = 0;
+        for (CallMetrics call : device.getCalls().values()) {
+            calls += call.exec.getCount();
+            execNanos += call.exec.getSumNanos();
+            waitNanos += call.wait.getSumNanos();
+            failures += call.failures.sum() + call.timeouts.sum();
         }
-        return false;
+        long now = System.nanoTime();
+        long events = device.statusEvents.sum();
+        double seconds = (now - lastDiagnostics) / 1e9;
+        double eventRate = seconds > 0 ? (events - lastStatusEvents) / seconds : 0;
+        lastStatusEvents = events;
+        lastDiagnostics = now;
+
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_BRIDGE_CALLS, new DecimalType(calls));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_BRIDGE_LATENCY,
+                new DecimalType(calls > 0 ? execNanos / 1e6 / calls : 0));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_BRIDGE_WAIT,
+                new DecimalType(calls > 0 ? waitNanos / 1e6 / calls : 0));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_BRIDGE_FAILURES, new DecimalType(failures));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_POLLS_EXECUTED, new DecimalType(device.pollsExecuted.sum()));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_POLLS_SKIPPED, new DecimalType(device.pollsSkipped.sum()));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_STATUS_EVENT_RATE, new DecimalType(eventRate));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_QUEUE_DEPTH, new DecimalType(device.queueDepth));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_COMMANDS_EXECUTED, new DecimalType(device.commandsExecuted));
+        updateState(CHGROUP_DIAGNOSTICS + "#" + CHANNEL_COMMANDS_MERGED, new DecimalType(device.commandsMerged));
     }
 
     boolean setPosition(String newPosition) {
@@ -226,35 +590,42 @@ public class AppleTVHandler extends BaseThingHandler {
          *
          * New offset will be adjusted if > totalTime
          */
-        Long oldPosition = position;
-        Long secPosition = -1l;
-        if (StringUtils.isNumeric(newPosition)) {
-            // specific position in seconds
-            secPosition = Long.parseLong(newPosition);
-        }
-        if (newPosition.contains("+") || newPosition.contains("-")) {
-            Long delta = time2Sec(newPosition);
-            secPosition = position + delta; // do the math +/-
-            if (secPosition < 0l) {
-                secPosition = 0l; // adjust if before start
+        try {
+            boolean relative = newPosition.contains("+") || newPosition.contains("-");
+            commandQueue.seek(time2Sec(newPosition), relative);
+            return true;
+        } catch (NumberFormatException e) {
+            logger.info("WARNING: SetPosition with invalid format: {}", newPosition);
+            return false;
+        }
+    }
+
+    /**
+     * Seek to the new position
+     *
+     * @param position new position or delta to the current position in sec
+     * @param relative true: position is a delta (+/-)
+     */
+    private boolean seek(long position, boolean relative) {
+        AppleTVPlayStatus status = playStatus;
+        long secPosition = position;
+        if (relative) {
+            secPosition = status.position + position; // do the math +/-
+            if (secPosition < 0) {
+                secPosition = 0; // adjust if before start
             }
-            if ((totalTime != 0l) && secPosition > totalTime) {
-                secPosition = totalTime; // adjust if behind end
+            if ((status.totalTime != 0) && secPosition > status.totalTime) {
+                secPosition = status.totalTime; // adjust if behind end
             }
-        } else {
-            secPosition = time2Sec(newPosition);
         }
 
-        if (secPosition == -1) {
-            logger.info("WARNING: SetPosition with invalid format: {}", newPosition);
-        }
-        logger.debug("Old position={}s / {}, new position={}s / {}", oldPosition,
-                String.format("%02d:%02d:%02d", secPosition / 3600, secPosition % 3600 / 60, secPosition % 3600 % 60),
-                secPosition,
-                String.format("%02d:%02d:%02d", secPosition / 3600, secPosition % 3600 / 60, secPosition % 3600 % 60));
-        statusEvent(PLAYSTATUS_POSITION, secPosition.toString());
-        requestUpdates++; // request refresh
-        return sendCommands(COMMAND_SET_POSITION + "=" + Long.toString(secPosition));
+        logger.debug("Old position={}s / {}, new position={}s / {}", status.position,
+                AppleTVPlayStatus.formatTime(status.position), secPosition,
+                AppleTVPlayStatus.formatTime(secPosition));
+        syncPosition(secPosition);
+        publishPlayStatus(status.withPosition(secPosition));
+        requestFastPolling(); // request refresh
+        return sendCommand(COMMAND_SET_POSITION, Long.toString(secPosition));
     }
 
     boolean setShuffle(String newShuffle) {
@@ -264,22 +635,30 @@ public class AppleTVHandler extends BaseThingHandler {
         } else {
             shuffle = newShuffle.toLowerCase().equals("true") ? 1 : 0;
         }
-        return sendCommands(COMMAND_SET_SHUFFLE + "=" + shuffle.toString());
+        commandQueue.set(COMMAND_SET_SHUFFLE, shuffle.toString());
+        return true;
     }
 
+    /**
+     * @param newRepeat repeat mode as number (0=off, 1=track, 2=all) or text (Off, Track, All)
+     */
     boolean setRepeat(String newRepeat) {
-        return sendCommands(COMMAND_SET_REPEAT + "=" + newRepeat);
-    }
-
-    private String Sec2Time(String secStr) {
-        long totalSecs = Long.parseLong(secStr);
-        long hours = totalSecs / 3600;
-        long minutes = (totalSecs % 3600) / 60;
-        long seconds = totalSecs % 60;
-        return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+        String repeat = newRepeat;
+        if (REPEAT_STATE_OFF.equalsIgnoreCase(newRepeat)) {
+            repeat = "0";
+        } else if (REPEAT_STATE_TRACK.equalsIgnoreCase(newRepeat)) {
+            repeat = "1";
+        } else if (REPEAT_STATE_ALL.equalsIgnoreCase(newRepeat)) {
+            repeat = "2";
+        } else if (!StringUtils.isNumeric(newRepeat) || newRepeat.isEmpty()) {
+            logger.info("WARNING: Invalid repeat mode: {}", newRepeat);
+            return false;
+        }
+        commandQueue.set(COMMAND_SET_REPEAT, repeat);
+        return true;
     }
 
-    private Long time2Sec(String time) {
+    private long time2Sec(String time) {
         long hours = 0, minutes = 0, seconds = 0;
         if (time.contains(":")) {
             String[] units = time.split(":"); // will break the string up into an array
@@ -298,6 +677,64 @@ public class AppleTVHandler extends BaseThingHandler {
         return Long.parseLong(time);
     }
 
+    /**
+     * Offer the binding as remote control to the Apple-TV (Settings->General->Remotes), the user selects it and enters
+     * the pairing PIN. The resulting login id replaces the configured one and the thing gets initialized again.
+     */
+    private void startPairing() {
+        if (StringUtils.isEmpty(config.pairingPIN)) {
+            logger.info("Pairing requires a PIN");
+            return;
+        }
+        logger.info("Pairing started, select remote '{}' on the Apple-TV and enter PIN {}", PAIRING_REMOTE_NAME,
+                config.pairingPIN);
+        handlerFactory.pair(config.pairingPIN, PAIRING_REMOTE_NAME, scheduler).whenComplete((loginId, e) -> {
+            if (e != null) {
+                logger.info("Pairing failed: {}", e.getMessage());
+                return;
+            }
+            logger.info("Pairing succeeded, login id {}", loginId);
+            Map<String, Object> update = new HashMap<>();
+            update.put(PROPERTY_LOGIN_ID, loginId);
+            update.put("doPairing", false);
+            handleConfigurationUpdate(update);
+        });
+    }
+
+    /**
+     * Called by LibPyATV when the circuit breaker of the device opens (calls fail fast) or the device responds again
+     *
+     * @param reachable false: the device doesn't respond, the thing goes OFFLINE
+     * @param reason    description of the failure
+     */
+    public void deviceReachable(boolean reachable, String reason) {
+        ThingStatusInfo status = getThing().getStatusInfo();
+        if (!reachable && (status.getStatus() == ThingStatus.ONLINE)) {
+            logger.info("Device doesn't respond: {}", reason);
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, reason);
+        } else if (reachable && (status.getStatus() == ThingStatus.OFFLINE)
+                && (status.getStatusDetail() == ThingStatusDetail.COMMUNICATION_ERROR)) {
+            logger.info("Device is reachable again");
+            updateStatus(ThingStatus.ONLINE);
+        }
+    }
+
+    /**
+     * Called by the PyATV module when a push update long-poll failed (the module restarts it with a growing delay) or
+     * delivers updates again after a failure. The result goes to the circuit breaker of the device, which decides
+     * about the thing status (see deviceReachable()).
+     *
+     * @param result 0: push updates restored, 1: failed, 2: device doesn't respond (see LibPyATV.RESULT_xxx)
+     * @param reason description of the failure
+     */
+    public void pushResult(int result, String reason) {
+        if (!reason.isEmpty()) {
+            logger.debug("Push updates failed: {}", reason);
+        }
+        pushHealthy = result == 0; // resync the position while the push updates are failing
+        handlerFactory.pushResult(this, config.ipAddress, config.loginId, result);
+    }
+
     /**
      * This function will be called from the PyATV module to display an info message
      *
@@ -316,49 +753,29 @@ public class AppleTVHandler extends BaseThingHandler {
         logger.debug("{}", message);
     }
 
-    public void devicesDiscovered(String json) {
-        logger.trace("Unexpected call to devicesDiscovered() to AppleTVHandler");
-    }
-
-    public void generatedDeviceId(String id) {
-        logger.trace("Unexpected call to generatedDeviceId() to AppleTVHandler");
-    }
-
-    private void initChannelMap() {
-        channelMap.put(PLAYSTATUS_STATE, CHANNEL_PLAY_MODE);
-        channelMap.put(PLAYSTATUS_MEDIA_TYPE, CHANNEL_MEDIA_TYPE);
-        channelMap.put(PLAYSTATUS_ALBUM, CHANNEL_ALBUM);
-        channelMap.put(PLAYSTATUS_ARTIST, CHANNEL_ARTIST);
-        channelMap.put(PLAYSTATUS_TITLE, CHANNEL_TITLE);
-        channelMap.put(PLAYSTATUS_GENRE, CHANNEL_GENRE);
-        // channelMap.put(PLAYSTATUS_ARTWORK_URL, CHANNEL_ARTWORK_URL);
-        channelMap.put(PLAYSTATUS_POSITION, CHANNEL_POSITION);
-        channelMap.put(PLAYSTATUS_TTIME, CHANNEL_TOTAL_TIME);
-        channelMap.put(PLAYSTATUS_REPEAT, CHANNEL_REPEAT_STATE);
-        channelMap.put(PLAYSTATUS_SHUFFLE, CHANNEL_SHUFFLE);
-    }
-
-    private void initPlayStatus() {
-        position = 0l;
-        totalTime = 0l;
-        playStatus.put(CHANNEL_POSITION, Sec2Time(position.toString()));
-        playStatus.put(CHANNEL_TOTAL_TIME, Sec2Time(totalTime.toString()));
-        playStatus.put(PLAYSTATUS_MEDIA_TYPE, MEDIA_TYPE_UNKNOWN);
-        playStatus.put(PLAYSTATUS_STATE, PLAY_STATE_IDLE);
-        playStatus.put(PLAYSTATUS_REPEAT, REPEAT_STATE_OFF);
-        playStatus.put(PLAYSTATUS_SHUFFLE, SHUFFLE_STATE_OFF);
-        playStatus.put(PLAYSTATUS_ALBUM, "");
-        playStatus.put(PLAYSTATUS_ARTIST, "");
-        playStatus.put(PLAYSTATUS_GENRE, "");
-        playStatus.put(PLAYSTATUS_TITLE, "");
-        playStatus.put(PLAYSTATUS_ARTWORK_URL, "");
-    }
-
     @Override
     public void dispose() {
-        if (statusJob != null) {
-            statusJob.cancel(true);
+        pushHealthy = false;
+        Object handle = pollHandle;
+        if (handle != null) {
+            handlerFactory.unregisterPoll(handle);
+            pollHandle = null;
+        }
+        if (positionJob != null) {
+            positionJob.cancel(true);
+        }
+        if (diagnosticsJob != null) {
+            diagnosticsJob.cancel(true);
+        }
+        commandQueue.clear();
+        if (config != null) {
+            if (config.pushUpdates && (daapClient == null)) {
+                handlerFactory.unsubscribe(config.ipAddress, config.loginId);
+            }
+            handlerFactory.closeDevice(config.ipAddress, config.loginId);
+            handlerFactory.getMetrics().remove(config.ipAddress);
         }
+        daapClient = null;
         super.dispose();
     }
 }
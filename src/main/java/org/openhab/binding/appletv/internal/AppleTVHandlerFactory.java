@@ -10,21 +10,34 @@
  */
 package org.openhab.binding.appletv.internal;
 
-import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.SUPPORTED_THING_TYPES_UIDS;
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import javax.servlet.ServletException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandlerFactory;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
+import org.openhab.binding.appletv.internal.jpy.CallBudget;
+import org.openhab.binding.appletv.internal.jpy.CallContext;
 import org.openhab.binding.appletv.internal.jpy.LibPyATV;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.http.HttpService;
+import org.osgi.service.http.NamespaceException;
 
 /**
  * The {@link AppleTVHandlerFactory} is responsible for creating things and thing
@@ -38,8 +51,23 @@ public class AppleTVHandlerFactory extends BaseThingHandlerFactory {
     private final AppleTVLogger logger = new AppleTVLogger(AppleTVHandlerFactory.class, "Factory");
     private AppleTVBindingConfiguration bindingConfig = new AppleTVBindingConfiguration();
     private @Nullable LibPyATV pyATV = null;
-    private String jsonDevices = "";
-    private String lastDeviceId = "";
+    private AppleTVMetrics metrics = AppleTVMetrics.DISABLED;
+    private @Nullable HttpService httpService;
+    private boolean servletRegistered = false;
+    private @Nullable AppleTVPollScheduler pollScheduler;
+    private AppleTVArtworkCache artworkCache = new AppleTVArtworkCache(ARTWORK_CACHE_SIZE * 1024L);
+
+    public AppleTVHandlerFactory() {
+    }
+
+    /**
+     * Create the factory with an already initialized PyATV access (bypasses the bundle activation)
+     *
+     * @param pyATV PyATV access
+     */
+    public AppleTVHandlerFactory(LibPyATV pyATV) {
+        this.pyATV = pyATV;
+    }
 
     /**
      * Activate the bundle: save properties
@@ -52,8 +80,146 @@ public class AppleTVHandlerFactory extends BaseThingHandlerFactory {
     protected void activate(ComponentContext componentContext, Map<String, Object> configProperties) {
         super.activate(componentContext);
         logger.debug("Activate HandlerFactory");
-        pyATV = new LibPyATV("");
+        Object libPath = configProperties.get("libPath");
+        bindingConfig.libPath = libPath != null ? libPath.toString().trim() : "";
+        pyATV = new LibPyATV(bindingConfig.libPath);
         logger.debug("PyATV installation path: {}", pyATV.getLibPath());
+
+        Object updateInterval = configProperties.get("updateInterval");
+        if (updateInterval != null) {
+            try {
+                bindingConfig.updateInterval = Math.max(1, Integer.parseInt(updateInterval.toString().trim()));
+            } catch (NumberFormatException e) {
+                logger.info("Invalid updateInterval '{}', using {}s", updateInterval, UPDATE_STATUS_INTERVAL);
+            }
+        }
+
+        Object maxCalls = configProperties.get("maxCallsPerSecond");
+        if (maxCalls != null) {
+            try {
+                bindingConfig.maxCallsPerSecond = Math.max(0, Integer.parseInt(maxCalls.toString().trim()));
+            } catch (NumberFormatException e) {
+                logger.info("Invalid maxCallsPerSecond '{}', using {}", maxCalls, MAX_CALLS_PER_SECOND);
+            }
+        }
+        pyATV.setCallBudget(new CallBudget(bindingConfig.maxCallsPerSecond));
+
+        Object cacheSize = configProperties.get("artworkCacheSize");
+        if (cacheSize != null) {
+            try {
+                bindingConfig.artworkCacheSize = Math.max(0, Integer.parseInt(cacheSize.toString().trim()));
+            } catch (NumberFormatException e) {
+                logger.info("Invalid artworkCacheSize '{}', using {}KB", cacheSize, ARTWORK_CACHE_SIZE);
+            }
+        }
+        artworkCache = new AppleTVArtworkCache(bindingConfig.artworkCacheSize * 1024L);
+
+        Object metricsEnabled = configProperties.get("metrics");
+        bindingConfig.metrics = (metricsEnabled != null) && Boolean.parseBoolean(metricsEnabled.toString());
+        if (bindingConfig.metrics) {
+            logger.info("Performance metrics enabled, available at {}", AppleTVMetricsServlet.SERVLET_ALIAS);
+            metrics = new AppleTVMetrics(true);
+            pyATV.setMetrics(metrics);
+            registerMetricsServlet();
+        }
+    }
+
+    @Deactivate
+    protected void deactivate(ComponentContext componentContext) {
+        AppleTVPollScheduler scheduler = pollScheduler;
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        unregisterMetricsServlet();
+        super.deactivate(componentContext);
+    }
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    public void setHttpService(HttpService httpService) {
+        this.httpService = httpService;
+        registerMetricsServlet();
+    }
+
+    public void unsetHttpService(HttpService httpService) {
+        unregisterMetricsServlet();
+        this.httpService = null;
+    }
+
+    private synchronized void registerMetricsServlet() {
+        HttpService service = httpService;
+        if (metrics.isEnabled() && (service != null) && !servletRegistered) {
+            try {
+                service.registerServlet(AppleTVMetricsServlet.SERVLET_ALIAS, new AppleTVMetricsServlet(metrics), null,
+                        null);
+                servletRegistered = true;
+            } catch (ServletException | NamespaceException e) {
+                logger.info("Unable to register metrics servlet: {} ({})", e.getMessage(), e.getClass());
+            }
+        }
+    }
+
+    private synchronized void unregisterMetricsServlet() {
+        HttpService service = httpService;
+        if (servletRegistered && (service != null)) {
+            service.unregister(AppleTVMetricsServlet.SERVLET_ALIAS);
+        }
+        servletRegistered = false;
+    }
+
+    /**
+     * Performance metrics registry (disabled unless enabled in the binding configuration)
+     */
+    public AppleTVMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Register the status poll of a device with the binding-wide poll scheduler, which spreads the polls of all
+     * devices over the poll tick.
+     *
+     * @param poll poll function
+     * @return handle for unregisterPoll()
+     */
+    public synchronized Object registerPoll(Runnable poll) {
+        AppleTVPollScheduler scheduler = pollScheduler;
+        if (scheduler == null) {
+            scheduler = new AppleTVPollScheduler(ThreadPoolManager.getScheduledPool(BINDING_ID));
+            pollScheduler = scheduler;
+        }
+        return scheduler.register(poll);
+    }
+
+    public synchronized void unregisterPoll(Object handle) {
+        AppleTVPollScheduler scheduler = pollScheduler;
+        if (scheduler != null) {
+            scheduler.unregister(handle);
+        }
+    }
+
+    @SuppressWarnings("null")
+    public boolean reservePoll() {
+        return pyATV.reservePoll();
+    }
+
+    @SuppressWarnings("null")
+    public void releasePoll() {
+        pyATV.releasePoll();
+    }
+
+    @SuppressWarnings("null")
+    public boolean pollStatus(Object handler, String ipAddress, String loginId) {
+        return pyATV.pollStatus(handler, ipAddress, loginId);
+    }
+
+    /**
+     * Cover art cache shared by all devices
+     */
+    public AppleTVArtworkCache getArtworkCache() {
+        return artworkCache;
+    }
+
+    public AppleTVBindingConfiguration getBindingConfig() {
+        return bindingConfig;
     }
 
     public void setBindingConfig(AppleTVBindingConfiguration bindingConfig) {
@@ -87,39 +253,106 @@ public class AppleTVHandlerFactory extends BaseThingHandlerFactory {
     }
 
     @SuppressWarnings("null")
-    public String scanDevices() {
-        try {
-            jsonDevices = "";
-            pyATV.scanDevices(this);
-            return jsonDevices;
-        } catch (Exception e) {
-            logger.info("Device scan failed!");
-        }
-        return "";
+    public boolean sendKeys(AppleTVKeySequence keys, int keyDelay, int gestureFrames, Object handler,
+            String ipAddress, String loginId) {
+        return pyATV.sendKeys(keys.getKeys(), keyDelay, gestureFrames, handler, ipAddress, loginId);
     }
 
     @SuppressWarnings("null")
-    String getLibPath() {
-        return pyATV.getLibPath();
+    public boolean setPosition(Object handler, String ipAddress, String loginId, int seconds) {
+        return pyATV.setPosition(handler, ipAddress, loginId, seconds);
+    }
 
+    @SuppressWarnings("null")
+    public boolean setShuffle(Object handler, String ipAddress, String loginId, boolean on) {
+        return pyATV.setShuffle(handler, ipAddress, loginId, on);
+    }
+
+    @SuppressWarnings("null")
+    public boolean setRepeat(Object handler, String ipAddress, String loginId, int mode) {
+        return pyATV.setRepeat(handler, ipAddress, loginId, mode);
+    }
+
+    @SuppressWarnings("null")
+    public boolean requestArtwork(Object handler, String ipAddress, String loginId) {
+        return pyATV.requestArtwork(handler, ipAddress, loginId);
     }
 
-    public String getLastDeviceId() {
-        return lastDeviceId;
+    @SuppressWarnings("null")
+    public boolean subscribe(AppleTVHandler handler, String ipAddress, String loginId) {
+        return pyATV.subscribe(handler, ipAddress, loginId);
+    }
+
+    @SuppressWarnings("null")
+    public void pushResult(AppleTVHandler handler, String ipAddress, String loginId, int result) {
+        pyATV.pushResult(handler, ipAddress, loginId, result);
+    }
+
+    @SuppressWarnings("null")
+    public void daapResult(AppleTVHandler handler, String ipAddress, String loginId, String request,
+            boolean responded) {
+        pyATV.daapResult(handler, ipAddress, loginId, request, responded);
+    }
+
+    @SuppressWarnings("null")
+    public void unsubscribe(String ipAddress, String loginId) {
+        pyATV.unsubscribe(ipAddress, loginId);
+    }
+
+    @SuppressWarnings("null")
+    public void closeDevice(String ipAddress, String loginId) {
+        pyATV.closeDevice(ipAddress, loginId);
+    }
+
+    @SuppressWarnings("null")
+    public String probeDevice(Object handler, String ipAddress, String loginId, int timeout) {
+        return pyATV.probeDevice(handler, ipAddress, loginId, timeout);
+    }
+
+    @SuppressWarnings("null")
+    public boolean startDiscovery(Object handler) {
+        return pyATV.startDiscovery(handler);
+    }
+
+    @SuppressWarnings("null")
+    public void stopDiscovery() {
+        pyATV.stopDiscovery();
+    }
+
+    /**
+     * Scan for devices (full zeroconf scan through the bridge, complements the passive listener)
+     *
+     * @return future device list in JSON format
+     */
+    @SuppressWarnings("null")
+    public CompletableFuture<String> scanDevices(Executor executor) {
+        return pyATV.scanDevices(executor);
     }
 
     /**
-     * Callback for PyATV module delivery the device list in JSON format
+     * Request the device id through the device session
      *
-     * @param json
+     * @return future device id
      */
-    public void devicesDiscovered(String json) {
-        logger.debug("Discovered devices: {}", json);
-        jsonDevices = json;
+    @SuppressWarnings("null")
+    public CompletableFuture<String> requestDeviceId(String ipAddress, String loginId, Executor executor) {
+        return pyATV.request(COMMAND_DEVICE_ID, CallContext.RESULT_DEVICE_ID, ipAddress, loginId, executor);
     }
 
-    public void generatedDeviceId(String id) {
-        lastDeviceId = id;
+    /**
+     * Pair the binding as remote control
+     *
+     * @return future login id
+     */
+    @SuppressWarnings("null")
+    public CompletableFuture<String> pair(String pin, String remoteName, Executor executor) {
+        return pyATV.pair(pin, remoteName, executor);
+    }
+
+    @SuppressWarnings("null")
+    String getLibPath() {
+        return pyATV.getLibPath();
+
     }
 
     public void info(String message) {
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link AppleTVKeySequence} is a validated, pre-tokenized sequence of remote keys (e.g. a key macro from the
+ * thing configuration). It gets compiled once and can be sent to the device with a single bridge call.
+ * Besides the remote keys a sequence may contain other PyATV commands (e.g. set_position=10, artwork_save), such a
+ * sequence is passed to the command line interface of the PyATV module.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVKeySequence {
+    private final String[] keys;
+    private final boolean keysOnly;
+
+    private AppleTVKeySequence(String[] keys) {
+        this.keys = keys;
+        this.keysOnly = Arrays.stream(keys).allMatch(REMOTE_KEYS::contains);
+    }
+
+    /**
+     * Compile a key sequence
+     *
+     * @param sequence keys or commands separated by ' ', e.g. "top_menu up left select"
+     * @return compiled sequence
+     * @throws AppleTVException sequence contains an unknown key or command
+     */
+    public static AppleTVKeySequence compile(@Nullable String sequence) throws AppleTVException {
+        if (sequence == null) {
+            throw new AppleTVException("Empty key sequence");
+        }
+        String[] keys = sequence.trim().split("\\s+");
+        if ((keys.length == 0) || keys[0].isEmpty()) {
+            throw new AppleTVException("Empty key sequence");
+        }
+        for (String key : keys) {
+            if (REMOTE_KEYS.contains(key)) {
+                continue;
+            }
+            String command = key.split("=", 2)[0]; // command=arg1,arg2
+            if (REQUEST_COMMANDS.contains(command)) {
+                throw new AppleTVException("Command '" + key + "' is not supported in key sequence '" + sequence + "'");
+            }
+            if (!PYATV_COMMANDS.contains(command)) {
+                throw new AppleTVException("Unknown key '" + key + "' in key sequence '" + sequence + "'");
+            }
+        }
+        return new AppleTVKeySequence(keys);
+    }
+
+    public AppleTVKeySequence append(AppleTVKeySequence other) {
+        String[] joined = Arrays.copyOf(keys, keys.length + other.keys.length);
+        System.arraycopy(other.keys, 0, joined, keys.length, other.keys.length);
+        return new AppleTVKeySequence(joined);
+    }
+
+    public String[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return true: the sequence contains only remote keys (see REMOTE_KEYS), false: it contains other commands
+     */
+    public boolean isKeysOnly() {
+        return keysOnly;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" ", keys);
+    }
+}
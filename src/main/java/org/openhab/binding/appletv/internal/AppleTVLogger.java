@@ -51,4 +51,8 @@ public class AppleTVLogger {
     public void trace(String message, Object... a) {
         logger.trace(prefix + message, a);
     }
+
+    public boolean isTraceEnabled() {
+        return logger.isTraceEnabled();
+    }
 }
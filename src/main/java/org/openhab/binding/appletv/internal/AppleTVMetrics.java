@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link AppleTVMetrics} is the registry for the performance metrics of the PyATV bridge: latency histograms,
+ * failure and timeout counters per device and command, poll, status event and command queue counters per device.
+ * All updates are lock-free. A disabled registry ignores all updates, callers should check isEnabled() before taking
+ * timestamps.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVMetrics {
+    public static final AppleTVMetrics DISABLED = new AppleTVMetrics(false);
+
+    /** Device key for calls not bound to a device (init, scan) */
+    public static final String GLOBAL = "";
+
+    /**
+     * Latency histogram with fixed buckets (upper bounds in ms)
+     */
+    public static class Histogram {
+        static final long[] BOUNDS_MS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+
+        void record(long nanos) {
+            long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int i = 0;
+            while ((i < BOUNDS_MS.length) && (ms > BOUNDS_MS[i])) {
+                i++;
+            }
+            buckets.incrementAndGet(i);
+            count.increment();
+            sumNanos.add(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSumNanos() {
+            return sumNanos.sum();
+        }
+    }
+
+    /**
+     * Metrics of one bridge command (e.g. playing) for one device
+     */
+    public static class CallMetrics {
+        public final Histogram wait = new Histogram(); // waiting for the device lane
+        public final Histogram exec = new Histogram(); // inside the PyATV module
+        public final LongAdder failures = new LongAdder();
+        public final LongAdder timeouts = new LongAdder();
+    }
+
+    /**
+     * Metrics of one device
+     */
+    public static class DeviceMetrics {
+        private final Map<String, CallMetrics> calls = new ConcurrentHashMap<>();
+        public final LongAdder pollsExecuted = new LongAdder();
+        public final LongAdder pollsSkipped = new LongAdder();
+        public final LongAdder statusEvents = new LongAdder();
+        // command queue, sampled from the queue of the thing handler
+        public volatile int queueDepth = 0;
+        public volatile long commandsExecuted = 0;
+        public volatile long commandsMerged = 0;
+
+        public CallMetrics call(String command) {
+            return calls.computeIfAbsent(command, c -> new CallMetrics());
+        }
+
+        public Map<String, CallMetrics> getCalls() {
+            return calls;
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<String, DeviceMetrics> devices = new ConcurrentHashMap<>();
+
+    public AppleTVMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public DeviceMetrics device(String ipAddress) {
+        return devices.computeIfAbsent(ipAddress, d -> new DeviceMetrics());
+    }
+
+    /**
+     * Record a completed bridge call
+     *
+     * @param ipAddress  device address, GLOBAL for init/scan
+     * @param command    first command of the call
+     * @param waitNanos  time waiting for the device lane
+     * @param execNanos  time inside the PyATV module
+     * @param successful false: call failed (exception or error code)
+     */
+    public void bridgeCall(String ipAddress, String command, long waitNanos, long execNanos, boolean successful) {
+        if (enabled) {
+            CallMetrics call = device(ipAddress).call(command);
+            call.wait.record(waitNanos);
+            call.exec.record(execNanos);
+            if (!successful) {
+                call.failures.increment();
+            }
+        }
+    }
+
+    /**
+     * Record a call dropped, because the device lane was busy for too long
+     */
+    public void bridgeTimeout(String ipAddress, String command, long waitNanos) {
+        if (enabled) {
+            CallMetrics call = device(ipAddress).call(command);
+            call.wait.record(waitNanos);
+            call.timeouts.increment();
+        }
+    }
+
+    public void poll(String ipAddress, boolean executed) {
+        if (enabled) {
+            DeviceMetrics device = device(ipAddress);
+            (executed ? device.pollsExecuted : device.pollsSkipped).increment();
+        }
+    }
+
+    public void statusEvent(String ipAddress) {
+        if (enabled) {
+            device(ipAddress).statusEvents.increment();
+        }
+    }
+
+    /**
+     * Record the state of the command queue of a device
+     *
+     * @param depth    commands waiting for execution
+     * @param executed commands executed (bridge calls)
+     * @param merged   channel commands merged into a pending command
+     */
+    public void commandQueue(String ipAddress, int depth, long executed, long merged) {
+        if (enabled) {
+            DeviceMetrics device = device(ipAddress);
+            device.queueDepth = depth;
+            device.commandsExecuted = executed;
+            device.commandsMerged = merged;
+        }
+    }
+
+    public void remove(String ipAddress) {
+        devices.remove(ipAddress);
+    }
+
+    /**
+     * Format all metrics in the Prometheus text format
+     */
+    public String format() {
+        Map<String, DeviceMetrics> sorted = new TreeMap<>(devices);
+        StringBuilder wait = new StringBuilder("# TYPE appletv_bridge_wait_seconds histogram\n");
+        StringBuilder exec = new StringBuilder("# TYPE appletv_bridge_exec_seconds histogram\n");
+        StringBuilder failures = new StringBuilder("# TYPE appletv_bridge_failures_total counter\n");
+        StringBuilder timeouts = new StringBuilder("# TYPE appletv_bridge_timeouts_total counter\n");
+        StringBuilder polls = new StringBuilder("# TYPE appletv_polls_total counter\n");
+        StringBuilder events = new StringBuilder("# TYPE appletv_status_events_total counter\n");
+        StringBuilder queue = new StringBuilder("# TYPE appletv_command_queue_depth gauge\n");
+        StringBuilder commands = new StringBuilder("# TYPE appletv_commands_total counter\n");
+        for (Map.Entry<String, DeviceMetrics> device : sorted.entrySet()) {
+            String ip = device.getKey();
+            DeviceMetrics metrics = device.getValue();
+            for (Map.Entry<String, CallMetrics> call : new TreeMap<>(metrics.calls).entrySet()) {
+                String command = call.getKey();
+                formatHistogram(wait, "appletv_bridge_wait_seconds", ip, command, call.getValue().wait);
+                formatHistogram(exec, "appletv_bridge_exec_seconds", ip, command, call.getValue().exec);
+                failures.append("appletv_bridge_failures_total").append(labels(ip, command)).append(' ')
+                        .append(call.getValue().failures.sum()).append('\n');
+                timeouts.append("appletv_bridge_timeouts_total").append(labels(ip, command)).append(' ')
+                        .append(call.getValue().timeouts.sum()).append('\n');
+            }
+            polls.append("appletv_polls_total{device=\"").append(ip).append("\",result=\"executed\"} ")
+                    .append(metrics.pollsExecuted.sum()).append('\n');
+            polls.append("appletv_polls_total{device=\"").append(ip).append("\",result=\"skipped\"} ")
+                    .append(metrics.pollsSkipped.sum()).append('\n');
+            events.append("appletv_status_events_total{device=\"").append(ip).append("\"} ")
+                    .append(metrics.statusEvents.sum()).append('\n');
+            queue.append("appletv_command_queue_depth{device=\"").append(ip).append("\"} ")
+                    .append(metrics.queueDepth).append('\n');
+            commands.append("appletv_commands_total{device=\"").append(ip).append("\",result=\"executed\"} ")
+                    .append(metrics.commandsExecuted).append('\n');
+            commands.append("appletv_commands_total{device=\"").append(ip).append("\",result=\"merged\"} ")
+                    .append(metrics.commandsMerged).append('\n');
+        }
+        return wait.append(exec).append(failures).append(timeouts).append(polls).append(events).append(queue)
+                .append(commands).toString();
+    }
+
+    private static void formatHistogram(StringBuilder out, String name, String ip, String command,
+            Histogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i <= Histogram.BOUNDS_MS.length; i++) {
+            cumulative += histogram.buckets.get(i);
+            String le = i < Histogram.BOUNDS_MS.length ? Double.toString(Histogram.BOUNDS_MS[i] / 1000.0) : "+Inf";
+            out.append(name).append("_bucket{device=\"").append(ip).append("\",command=\"").append(command)
+                    .append("\",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum").append(labels(ip, command)).append(' ')
+                .append(histogram.getSumNanos() / 1e9).append('\n');
+        out.append(name).append("_count").append(labels(ip, command)).append(' ').append(histogram.getCount())
+                .append('\n');
+    }
+
+    private static String labels(String ip, String command) {
+        return "{device=\"" + ip + "\",command=\"" + command + "\"}";
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The {@link AppleTVMetricsServlet} exposes the binding metrics in the Prometheus text format (scrape endpoint
+ * /appletv/metrics).
+ *
+ * @author markus7017 - Initial contribution
+ */
+public class AppleTVMetricsServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    public static final String SERVLET_ALIAS = "/appletv/metrics";
+
+    private final transient AppleTVMetrics metrics;
+
+    public AppleTVMetricsServlet(AppleTVMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(metrics.format());
+    }
+}
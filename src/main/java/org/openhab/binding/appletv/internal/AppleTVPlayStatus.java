@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link AppleTVPlayStatus} is an immutable snapshot of the device's play status. Codes are kept as reported
+ * by pyatv (see const.py), -1 = not reported. Two snapshots are compared field by field on primitives, the text
+ * representation is only created for channels, which really changed.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVPlayStatus {
+    public static final int MEDIA_TYPE_CODE_NONE = 0;
+    public static final int MEDIA_TYPE_CODE_UNKNOWN = 1;
+    public static final int MEDIA_TYPE_CODE_VIDEO = 2;
+    public static final int MEDIA_TYPE_CODE_MUSIC = 3;
+    public static final int MEDIA_TYPE_CODE_TV = 4;
+
+    public static final int PLAY_STATE_CODE_IDLE = 0;
+    public static final int PLAY_STATE_CODE_NO_MEDIA = 1;
+    public static final int PLAY_STATE_CODE_PAUSED = 3;
+    public static final int PLAY_STATE_CODE_PLAYING = 4;
+
+    public static final AppleTVPlayStatus INITIAL = new AppleTVPlayStatus(MEDIA_TYPE_CODE_UNKNOWN,
+            PLAY_STATE_CODE_IDLE, "", "", "", "", 0, 0, 0, false);
+
+    public final int mediaType;
+    public final int playState;
+    public final String title;
+    public final String artist;
+    public final String album;
+    public final String genre;
+    public final long position;
+    public final long totalTime;
+    public final int repeat;
+    public final boolean shuffle;
+
+    public AppleTVPlayStatus(int mediaType, int playState, String title, String artist, String album, String genre,
+            long position, long totalTime, int repeat, boolean shuffle) {
+        this.mediaType = mediaType;
+        this.playState = playState;
+        this.title = title;
+        // album, artist, genre are only valid if Media == Music
+        boolean music = mediaType == MEDIA_TYPE_CODE_MUSIC;
+        this.artist = music ? artist : "";
+        this.album = music ? album : "";
+        this.genre = music ? genre : "";
+        this.position = position;
+        this.totalTime = totalTime;
+        this.repeat = repeat;
+        this.shuffle = shuffle;
+    }
+
+    public AppleTVPlayStatus withPosition(long newPosition) {
+        if (newPosition == position) {
+            return this;
+        }
+        return new AppleTVPlayStatus(mediaType, playState, title, artist, album, genre, newPosition, totalTime,
+                repeat, shuffle);
+    }
+
+    public boolean isPlaying() {
+        return playState == PLAY_STATE_CODE_PLAYING;
+    }
+
+    /**
+     * @return true: Idle or No media
+     */
+    public boolean isIdle() {
+        return (playState == PLAY_STATE_CODE_IDLE) || (playState == PLAY_STATE_CODE_NO_MEDIA);
+    }
+
+    /**
+     * Identity of the media for the artwork cache: tracks of the same album share the cover
+     *
+     * @return key, empty: no media
+     */
+    public String getMediaKey() {
+        if (title.isEmpty() && album.isEmpty()) {
+            return "";
+        }
+        return artist + "\n" + (album.isEmpty() ? title : album);
+    }
+
+    /**
+     * Compare with the previous snapshot.
+     *
+     * @return bit mask of the changed channels, see {@link AppleTVStatusChannel#mask()}
+     */
+    public int diff(AppleTVPlayStatus old) {
+        int changed = 0;
+        // compare the texts, different codes may map to the same text (e.g. Idle)
+        if (!playStateText(playState).equals(playStateText(old.playState))) {
+            changed |= AppleTVStatusChannel.PLAY_MODE.mask();
+        }
+        if (!mediaTypeText(mediaType).equals(mediaTypeText(old.mediaType))) {
+            changed |= AppleTVStatusChannel.MEDIA_TYPE.mask();
+        }
+        if (!title.equals(old.title)) {
+            changed |= AppleTVStatusChannel.TITLE.mask();
+        }
+        if (!artist.equals(old.artist)) {
+            changed |= AppleTVStatusChannel.ARTIST.mask();
+        }
+        if (!album.equals(old.album)) {
+            changed |= AppleTVStatusChannel.ALBUM.mask();
+        }
+        if (!genre.equals(old.genre)) {
+            changed |= AppleTVStatusChannel.GENRE.mask();
+        }
+        if (position != old.position) {
+            changed |= AppleTVStatusChannel.POSITION.mask();
+        }
+        if (totalTime != old.totalTime) {
+            changed |= AppleTVStatusChannel.TOTAL_TIME.mask();
+        }
+        if (!repeatText(repeat).equals(repeatText(old.repeat))) {
+            changed |= AppleTVStatusChannel.REPEAT.mask();
+        }
+        if (shuffle != old.shuffle) {
+            changed |= AppleTVStatusChannel.SHUFFLE.mask();
+        }
+        return changed;
+    }
+
+    /**
+     * @return channel value as text, time values are formatted into buffer (hh:mm:ss)
+     */
+    public String text(AppleTVStatusChannel channel, char[] buffer) {
+        switch (channel) {
+            case PLAY_MODE:
+                return playStateText(playState);
+            case MEDIA_TYPE:
+                return mediaTypeText(mediaType);
+            case TITLE:
+                return title;
+            case ARTIST:
+                return artist;
+            case ALBUM:
+                return album;
+            case GENRE:
+                return genre;
+            case POSITION:
+                return new String(buffer, 0, formatTime(position, buffer));
+            case TOTAL_TIME:
+                return new String(buffer, 0, formatTime(totalTime, buffer));
+            case REPEAT:
+                return repeatText(repeat);
+            case SHUFFLE:
+                return shuffle ? SHUFFLE_STATE_ON : SHUFFLE_STATE_OFF;
+        }
+        return "";
+    }
+
+    public static String mediaTypeText(int mediaType) {
+        switch (mediaType) {
+            case 1:
+                return MEDIA_TYPE_UNKNOWN;
+            case 2:
+                return MEDIA_TYPE_VIDEO;
+            case 3:
+                return MEDIA_TYPE_MUSIC;
+            case 4:
+                return MEDIA_TYPE_TV;
+            default:
+                return MEDIA_TYPE_OTHER;
+        }
+    }
+
+    public static String playStateText(int playState) {
+        switch (playState) {
+            case -1:
+            case 0:
+                return PLAY_STATE_IDLE;
+            case 1:
+                return PLAY_STATE_NO_MEDIA;
+            case 2:
+                return PLAY_STATE_LOADING;
+            case 3:
+                return PLAY_STATE_PAUSED;
+            case 4:
+                return PLAY_STATE_PLAYING;
+            case 5:
+                return PLAY_STATE_FAST_FORWARD;
+            case 6:
+                return PLAY_STATE_FAST_BACKWARD;
+            default:
+                return PLAY_STATE_OTHER;
+        }
+    }
+
+    public static String repeatText(int repeat) {
+        switch (repeat) {
+            case 0:
+                return REPEAT_STATE_OFF;
+            case 1:
+                return REPEAT_STATE_TRACK;
+            case 2:
+                return REPEAT_STATE_ALL;
+            default:
+                return REPEAT_STATE_OTHER;
+        }
+    }
+
+    /**
+     * Format seconds as hh:mm:ss without creating temporary objects.
+     *
+     * @param seconds time in seconds, negative values are treated as 0
+     * @param buffer  target, at least 20 chars
+     * @return number of chars written
+     */
+    public static int formatTime(long seconds, char[] buffer) {
+        long secs = Math.max(seconds, 0);
+        long hours = secs / 3600;
+        int pos = 0;
+        if (hours > 99) {
+            // rare case: more digits than the fixed format
+            long divisor = 1;
+            while (divisor * 10 <= hours) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                buffer[pos++] = (char) ('0' + (hours / divisor) % 10);
+            }
+        } else {
+            pos = put2(buffer, pos, (int) hours);
+        }
+        buffer[pos++] = ':';
+        pos = put2(buffer, pos, (int) (secs % 3600 / 60));
+        buffer[pos++] = ':';
+        return put2(buffer, pos, (int) (secs % 60));
+    }
+
+    public static String formatTime(long seconds) {
+        char[] buffer = new char[20];
+        return new String(buffer, 0, formatTime(seconds, buffer));
+    }
+
+    private static int put2(char[] buffer, int pos, int value) {
+        buffer[pos] = (char) ('0' + value / 10);
+        buffer[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link AppleTVPollScheduler} drives the status polls of all devices. Instead of one timer per thing (which
+ * fires for all devices in the same instant after a restart) the poll tick is divided into slots and each device
+ * gets the least used slot, ties are broken randomly. A single timer walks through the slots and hands the polls of
+ * the current slot to the thread pool. A poll still running from the last tick is skipped.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVPollScheduler {
+    private final AppleTVLogger logger = new AppleTVLogger(AppleTVPollScheduler.class, "PollScheduler");
+
+    private static final int SLOTS = 10; // slots per POLL_TICK_INTERVAL
+
+    private static class Entry {
+        final Runnable poll;
+        final AtomicBoolean running = new AtomicBoolean();
+
+        Entry(Runnable poll) {
+            this.poll = poll;
+        }
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final List<List<Entry>> slots = new ArrayList<>(SLOTS);
+    private @Nullable ScheduledFuture<?> timer;
+    private int currentSlot = 0;
+    private int entries = 0;
+
+    public AppleTVPollScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        for (int i = 0; i < SLOTS; i++) {
+            slots.add(new CopyOnWriteArrayList<>());
+        }
+    }
+
+    /**
+     * Register a device poll, it gets called every POLL_TICK_INTERVAL (the polling policy decides if the device is
+     * really polled)
+     *
+     * @param poll poll function
+     * @return handle to unregister the poll
+     */
+    public synchronized Object register(Runnable poll) {
+        int min = Integer.MAX_VALUE;
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < SLOTS; i++) {
+            int size = slots.get(i).size();
+            if (size < min) {
+                min = size;
+                candidates.clear();
+            }
+            if (size == min) {
+                candidates.add(i);
+            }
+        }
+        int slot = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        Entry entry = new Entry(poll);
+        slots.get(slot).add(entry);
+        entries++;
+        logger.debug("Poll registered in slot {}/{} ({} devices)", slot, SLOTS, entries);
+
+        if (timer == null) {
+            long period = TimeUnit.SECONDS.toMillis(POLL_TICK_INTERVAL) / SLOTS;
+            timer = scheduler.scheduleAtFixedRate(this::tick, period, period, TimeUnit.MILLISECONDS);
+        }
+        return entry;
+    }
+
+    public synchronized void unregister(Object handle) {
+        for (List<Entry> slot : slots) {
+            if (slot.remove(handle)) {
+                entries--;
+            }
+        }
+        ScheduledFuture<?> t = timer;
+        if ((entries == 0) && (t != null)) {
+            t.cancel(false);
+            timer = null;
+        }
+    }
+
+    public synchronized void shutdown() {
+        for (List<Entry> slot : slots) {
+            slot.clear();
+        }
+        entries = 0;
+        ScheduledFuture<?> t = timer;
+        if (t != null) {
+            t.cancel(false);
+            timer = null;
+        }
+    }
+
+    private void tick() {
+        // only the timer thread updates currentSlot
+        List<Entry> slot = slots.get(currentSlot);
+        currentSlot = (currentSlot + 1) % SLOTS;
+        for (Entry entry : slot) {
+            if (!entry.running.compareAndSet(false, true)) {
+                logger.trace("Previous poll still running, skipped");
+                continue;
+            }
+            scheduler.execute(() -> {
+                try {
+                    entry.poll.run();
+                } catch (RuntimeException e) {
+                    logger.info("Status poll failed: {} ({})", e.getMessage(), e.getClass());
+                } finally {
+                    entry.running.set(false);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.POLL_JITTER;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link AppleTVPollingPolicy} decides when the play status of a device gets polled. It polls fast after a key
+ * press or a change of the play state, at a moderate rate while playing, rarely while idle/paused and backs off
+ * exponentially while the device is unreachable.
+ *
+ * While the device reports Idle or No media (heartbeat mode) the due polls are only a heartbeat (server-info), the
+ * full play status is requested every fullPollInterval, after a command or when the device responds again after it
+ * was unreachable (e.g. woke up).
+ *
+ * The state is an immutable snapshot, which is replaced with compareAndSet. The scheduler thread, the command queue
+ * and the PyATV callbacks could update the policy concurrently without locking.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVPollingPolicy {
+    public enum PollState {
+        FAST,
+        PLAYING,
+        IDLE,
+        HEARTBEAT,
+        UNREACHABLE
+    }
+
+    private static class Snapshot {
+        final PollState state;
+        final int fastPolls; // remaining fast polls
+        final int failures; // consecutive failed polls
+        final boolean playing;
+        final boolean heartbeat; // device is idle or has no media
+        final long nextPoll; // System.nanoTime() of the next poll
+        final long nextFullPoll; // System.nanoTime() of the next full poll in heartbeat mode
+
+        Snapshot(int fastPolls, int failures, boolean playing, boolean heartbeat, long nextPoll, long nextFullPoll) {
+            this.fastPolls = fastPolls;
+            this.failures = failures;
+            this.playing = playing;
+            this.heartbeat = heartbeat && !playing;
+            this.nextPoll = nextPoll;
+            this.nextFullPoll = nextFullPoll;
+            if (failures > 0) {
+                state = PollState.UNREACHABLE;
+            } else if (fastPolls > 0) {
+                state = PollState.FAST;
+            } else if (playing) {
+                state = PollState.PLAYING;
+            } else {
+                state = this.heartbeat ? PollState.HEARTBEAT : PollState.IDLE;
+            }
+        }
+
+        Snapshot withNextPoll(long nextPoll) {
+            return new Snapshot(fastPolls, failures, playing, heartbeat, nextPoll, nextFullPoll);
+        }
+    }
+
+    private final long fastInterval;
+    private final long playingInterval;
+    private final long idleInterval;
+    private final long maxBackoff;
+    private final long fullPollInterval;
+    private final int fastCount;
+    private final Consumer<PollState> listener;
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * @param fastInterval    sec between polls after a key press or state change
+     * @param playingInterval sec between polls while playing
+     * @param idleInterval    sec between polls while idle, paused or without media
+     * @param maxBackoff      max sec between polls while the device is unreachable
+     * @param fullPollInterval sec between full polls in heartbeat mode, 0=no heartbeat mode
+     * @param fastCount       number of fast polls after a key press or state change
+     * @param listener        gets called on every state transition
+     */
+    public AppleTVPollingPolicy(int fastInterval, int playingInterval, int idleInterval, int maxBackoff,
+            int fullPollInterval, int fastCount, Consumer<PollState> listener) {
+        this.fastInterval = TimeUnit.SECONDS.toNanos(fastInterval);
+        this.playingInterval = TimeUnit.SECONDS.toNanos(playingInterval);
+        this.idleInterval = TimeUnit.SECONDS.toNanos(idleInterval);
+        this.maxBackoff = TimeUnit.SECONDS.toNanos(Math.max(maxBackoff, playingInterval));
+        this.fullPollInterval = TimeUnit.SECONDS.toNanos(fullPollInterval);
+        this.fastCount = fastCount;
+        this.listener = listener;
+        // poll once at startup to get the initial status
+        long now = System.nanoTime();
+        this.current = new AtomicReference<>(new Snapshot(1, 0, false, false, now, now));
+    }
+
+    /**
+     * Check if a poll is due and reserve it. Concurrent callers won't get the same poll twice.
+     *
+     * @param now System.nanoTime()
+     * @return true: poll the device now, false: skip
+     */
+    public boolean tryStartPoll(long now) {
+        Snapshot s, next;
+        do {
+            s = current.get();
+            if (now - s.nextPoll < 0) {
+                return false;
+            }
+            next = new Snapshot(Math.max(0, s.fastPolls - 1), s.failures, s.playing, s.heartbeat,
+                    now + interval(s), s.nextFullPoll);
+        } while (!current.compareAndSet(s, next));
+        notifyListener(s, next);
+        return true;
+    }
+
+    /**
+     * Check if the poll started by tryStartPoll() should only be a heartbeat
+     *
+     * @param now System.nanoTime()
+     * @return true: send a heartbeat and call heartbeatCompleted(), false: poll the play status
+     */
+    public boolean isHeartbeat(long now) {
+        Snapshot s = current.get();
+        return s.heartbeat && (s.fastPolls == 0) && (now - s.nextFullPoll < 0);
+    }
+
+    /**
+     * Update the policy with the result of a poll. The next poll is scheduled relative to the completion.
+     *
+     * @param successful false: device didn't respond
+     * @param now        System.nanoTime()
+     */
+    public void pollCompleted(boolean successful, long now) {
+        Snapshot s, next;
+        do {
+            s = current.get();
+            next = new Snapshot(s.fastPolls, successful ? 0 : s.failures + 1, s.playing, s.heartbeat, 0,
+                    now + fullPollInterval);
+            next = next.withNextPoll(now + interval(next));
+        } while (!current.compareAndSet(s, next));
+        notifyListener(s, next);
+    }
+
+    /**
+     * Update the policy with the result of a heartbeat. A device, which responds again after it was unreachable, gets
+     * a full poll right away.
+     *
+     * @param successful false: device didn't respond
+     * @param now        System.nanoTime()
+     */
+    public void heartbeatCompleted(boolean successful, long now) {
+        Snapshot s, next;
+        do {
+            s = current.get();
+            if (successful && (s.failures > 0)) {
+                // activity: the device woke up or is back on the network
+                next = new Snapshot(s.fastPolls, 0, s.playing, s.heartbeat, now, now);
+            } else {
+                next = new Snapshot(s.fastPolls, successful ? 0 : s.failures + 1, s.playing, s.heartbeat, 0,
+                        s.nextFullPoll);
+                next = next.withNextPoll(now + interval(next));
+            }
+        } while (!current.compareAndSet(s, next));
+        notifyListener(s, next);
+    }
+
+    /**
+     * A key was pressed or a command was sent: poll fast for a while
+     */
+    public void requestFast(long now) {
+        Snapshot s, next;
+        do {
+            s = current.get();
+            long nextPoll = (now + fastInterval - s.nextPoll < 0) ? now + fastInterval : s.nextPoll;
+            next = new Snapshot(fastCount, s.failures, s.playing, s.heartbeat, nextPoll, s.nextFullPoll);
+        } while (!current.compareAndSet(s, next));
+        notifyListener(s, next);
+    }
+
+    /**
+     * The play state has changed (reported by a poll or pushed by the device)
+     */
+    public void playStateChanged(boolean playing, long now) {
+        Snapshot s, next;
+        do {
+            s = current.get();
+            long nextPoll = (now + fastInterval - s.nextPoll < 0) ? now + fastInterval : s.nextPoll;
+            next = new Snapshot(fastCount, s.failures, playing, s.heartbeat, nextPoll, s.nextFullPoll);
+        } while (!current.compareAndSet(s, next));
+        notifyListener(s, next);
+    }
+
+    /**
+     * Update the heartbeat mode with each reported play status
+     *
+     * @param idle true: the device is idle or has no media, polls switch to heartbeats after the fast polls
+     */
+    public void setIdle(boolean idle) {
+        boolean heartbeat = idle && (fullPollInterval > 0);
+        Snapshot s, next;
+        do {
+            s = current.get();
+            if (s.heartbeat == heartbeat) {
+                return;
+            }
+            next = new Snapshot(s.fastPolls, s.failures, s.playing, heartbeat, s.nextPoll, s.nextFullPoll);
+        } while (!current.compareAndSet(s, next));
+        notifyListener(s, next);
+    }
+
+    public PollState getState() {
+        return current.get().state;
+    }
+
+    public int getFailures() {
+        return current.get().failures;
+    }
+
+    /**
+     * @return ms until the next poll (negative: poll is overdue)
+     */
+    public long getDelay(long now) {
+        return TimeUnit.NANOSECONDS.toMillis(current.get().nextPoll - now);
+    }
+
+    private long interval(Snapshot s) {
+        switch (s.state) {
+            case FAST:
+                return fastInterval;
+            case PLAYING:
+                return jitter(playingInterval);
+            case UNREACHABLE:
+                // playingInterval * 2^(failures-1), limited by maxBackoff
+                int shift = Math.min(s.failures - 1, 30);
+                long backoff = playingInterval << shift;
+                return jitter((backoff <= 0) || (backoff > maxBackoff) ? maxBackoff : backoff);
+            case IDLE:
+            case HEARTBEAT:
+            default:
+                return jitter(idleInterval);
+        }
+    }
+
+    /**
+     * Randomize the interval by +/- POLL_JITTER %, so devices with the same state don't poll in lockstep
+     */
+    private static long jitter(long interval) {
+        long range = interval * POLL_JITTER / 100;
+        return range > 0 ? interval + ThreadLocalRandom.current().nextLong(-range, range + 1) : interval;
+    }
+
+    private void notifyListener(Snapshot oldState, Snapshot newState) {
+        if (oldState.state != newState.state) {
+            listener.accept(newState.state);
+        }
+    }
+
+    @Override
+    public String toString() {
+        Snapshot s = current.get();
+        return s.state + " (fastPolls=" + s.fastPolls + ", failures=" + s.failures + ", nextPoll in "
+                + getDelay(System.nanoTime()) + "ms)";
+    }
+}
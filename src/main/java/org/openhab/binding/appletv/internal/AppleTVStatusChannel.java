@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link AppleTVStatusChannel} enumerates the channels of the play status group. The ordinal is used as index
+ * for the change mask computed by {@link AppleTVPlayStatus#diff(AppleTVPlayStatus)}.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public enum AppleTVStatusChannel {
+    PLAY_MODE(CHANNEL_PLAY_MODE),
+    MEDIA_TYPE(CHANNEL_MEDIA_TYPE),
+    TITLE(CHANNEL_TITLE),
+    ARTIST(CHANNEL_ARTIST),
+    ALBUM(CHANNEL_ALBUM),
+    GENRE(CHANNEL_GENRE),
+    POSITION(CHANNEL_POSITION),
+    TOTAL_TIME(CHANNEL_TOTAL_TIME),
+    REPEAT(CHANNEL_REPEAT_STATE),
+    SHUFFLE(CHANNEL_SHUFFLE);
+
+    private static final AppleTVStatusChannel[] CHANNELS = values();
+
+    private final String channelId;
+
+    private AppleTVStatusChannel(String channel) {
+        this.channelId = CHAN_GROUP_PLAYSTATUS + "#" + channel;
+    }
+
+    /**
+     * @return the channel id including the group, e.g. "playStatus#title"
+     */
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static AppleTVStatusChannel[] all() {
+        return CHANNELS;
+    }
+}
@@ -27,4 +27,18 @@ public class AppleTVThingConfiguration {
     public String keyMovie;
     public String keyTVShow;
     public String keyMusic;
+    public int keyDelay = 0; // delay between the keys of a sequence in ms
+    public int gestureFrames = 7; // requests per arrow key (swipe gesture), 2..7
+
+    public String backend = "pyatv"; // pyatv or java (DAAP client for play status and simple commands)
+    public boolean pushUpdates = true;
+    public int positionInterval = 1; // sec between local position updates while playing, 0=disabled
+    public int positionResync = 60; // sec after which the position gets synced with the device
+
+    // polling intervals in sec, 0=use the default
+    public int pollFastInterval = 0;
+    public int pollPlayingInterval = 0;
+    public int pollIdleInterval = 0;
+    public int pollMaxBackoff = 0;
+    public boolean pollHeartbeat = true; // only server-info while idle/no media, full poll every POLL_FULL_INTERVAL
 }
@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.daap;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
+import static org.openhab.binding.appletv.internal.daap.DmapTags.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.appletv.internal.AppleTVException;
+import org.openhab.binding.appletv.internal.AppleTVLogger;
+import org.openhab.binding.appletv.internal.AppleTVMetrics;
+import org.openhab.binding.appletv.internal.AppleTVPlayStatus;
+
+/**
+ * The {@link DaapClient} talks DAAP to the Apple-TV without the embedded Python interpreter. It supports the play
+ * status and the simple ctrl-int commands (play, pause, stop, next, previous, set property), everything else
+ * (pairing, gestures, artwork, AirPlay) stays with PyATV. The requests and the status mapping follow daap.py and
+ * apple_tv.py.
+ *
+ * HttpURLConnection keeps the connection to the device alive between requests as long as each response is read
+ * completely. The response is read into a reusable buffer and decoded in place by {@link DmapParser}.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class DaapClient {
+    private final AppleTVLogger logger = new AppleTVLogger(DaapClient.class, "DAAP");
+
+    private static final String PSU_CMD = "ctrl-int/1/playstatusupdate?[AUTH]&revision-number=0";
+    private static final Pattern PAIRING_GUID = Pattern.compile("0x[0-9a-fA-F]{16}.*");
+    private static final long MAX_TIME = 0xffffffffL; // reported by some devices instead of a time
+
+    private final String ipAddress;
+    private final String baseUrl;
+    private final String loginId;
+    private final AppleTVMetrics metrics;
+    private long sessionId = 0;
+    private byte[] buffer = new byte[4096];
+
+    /**
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing (pairing guid 0x... or home sharing id)
+     * @param metrics   records the requests like bridge calls
+     */
+    public DaapClient(String ipAddress, String loginId, AppleTVMetrics metrics) {
+        this.ipAddress = ipAddress;
+        this.baseUrl = "http://" + ipAddress + ":" + DAAP_PORT + "/";
+        this.loginId = loginId;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Request the current play status
+     *
+     * @return play status with the codes as reported by PyATV (see AppleTVPlayStatus)
+     * @throws AppleTVException request failed
+     */
+    public synchronized AppleTVPlayStatus playStatus() throws AppleTVException {
+        ByteBuffer data = request("GET", PSU_CMD, "daap playing");
+        if (logger.isTraceEnabled()) {
+            logger.trace("playstatusupdate:\n{}", DmapParser.toString(data));
+        }
+        ByteBuffer status = DmapParser.first(data, CMST);
+        if (status == null) {
+            throw new AppleTVException("Invalid play status response");
+        }
+
+        long playState = DmapParser.uint(status, -1, CAPS);
+        String title = DmapParser.string(status, CANN);
+        String artist = DmapParser.string(status, CANA);
+        String album = DmapParser.string(status, CANL);
+        String genre = DmapParser.string(status, CANG);
+        long totalTime = msToSec(DmapParser.uint(status, 0, CAST));
+        long position = totalTime - msToSec(DmapParser.uint(status, 0, CANT));
+        return new AppleTVPlayStatus(mediaType(status, playState, artist, album), (int) playState,
+                title != null ? title : "", artist != null ? artist : "", album != null ? album : "",
+                genre != null ? genre : "", position, totalTime, (int) DmapParser.uint(status, -1, CARP),
+                DmapParser.uint(status, 0, CASH) != 0);
+    }
+
+    /**
+     * @return true: all keys could be sent as ctrl-int command
+     */
+    public static boolean supportsKeys(String[] keys) {
+        return Arrays.stream(keys).allMatch(key -> ctrlIntCommand(key) != null);
+    }
+
+    /**
+     * Send remote keys, see supportsKeys()
+     *
+     * @param keys     remote keys
+     * @param keyDelay delay between two keys in ms, 0=none
+     * @throws AppleTVException request failed or key not supported
+     */
+    public synchronized void sendKeys(String[] keys, int keyDelay) throws AppleTVException {
+        for (int i = 0; i < keys.length; i++) {
+            String cmd = ctrlIntCommand(keys[i]);
+            if (cmd == null) {
+                throw new AppleTVException("Key '" + keys[i] + "' not supported by the DAAP client");
+            }
+            if ((i > 0) && (keyDelay > 0)) {
+                try {
+                    Thread.sleep(keyDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AppleTVException("Key sequence interrupted");
+                }
+            }
+            request("POST", "ctrl-int/1/" + cmd + "?[AUTH]&prompt-id=0", "daap key");
+        }
+    }
+
+    /**
+     * Execute a set_xxx command (set_position, set_shuffle, set_repeat)
+     *
+     * @param command command name, see COMMAND_SET_XXX
+     * @param value   numeric value
+     * @return true: command executed, false: command or value not supported by the DAAP client
+     * @throws AppleTVException request failed
+     */
+    public synchronized boolean setProperty(String command, String value) throws AppleTVException {
+        long numericValue;
+        try {
+            numericValue = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        String property;
+        switch (command) {
+            case COMMAND_SET_POSITION:
+                property = "dacp.playingtime";
+                numericValue *= 1000;
+                break;
+            case COMMAND_SET_SHUFFLE:
+                property = "dacp.shufflestate";
+                break;
+            case COMMAND_SET_REPEAT:
+                property = "dacp.repeatstate";
+                break;
+            default:
+                return false;
+        }
+        request("POST", "ctrl-int/1/setproperty?" + property + "=" + numericValue + "&[AUTH]", "daap " + command);
+        return true;
+    }
+
+    /**
+     * @return true: the request failed, because the device didn't respond (connection failed or timeout), false: the
+     *         device responded, but rejected the request or returned an invalid response
+     */
+    public static boolean isUnreachable(AppleTVException e) {
+        return e.getCause() instanceof IOException;
+    }
+
+    private static @Nullable String ctrlIntCommand(String key) {
+        switch (key) {
+            case "play":
+            case "pause":
+            case "stop":
+                return key;
+            case "next":
+                return "nextitem";
+            case "previous":
+                return "previtem";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Same mapping as PlayingInternal.media_type (apple_tv.py) and convert.media_kind()
+     */
+    private static int mediaType(ByteBuffer status, long playState, @Nullable String artist, @Nullable String album) {
+        if (playState <= 0) {
+            return AppleTVPlayStatus.MEDIA_TYPE_CODE_NONE;
+        }
+        long mediaKind = DmapParser.uint(status, -1, CMMK);
+        if (mediaKind == AppleTVPlayStatus.MEDIA_TYPE_CODE_UNKNOWN) {
+            // Fallback: if artist or album exists we assume music (not present for video)
+            boolean music = ((artist != null) && !artist.isEmpty()) || ((album != null) && !album.isEmpty());
+            return music ? AppleTVPlayStatus.MEDIA_TYPE_CODE_MUSIC : AppleTVPlayStatus.MEDIA_TYPE_CODE_VIDEO;
+        }
+        switch ((int) mediaKind) {
+            case 0:
+                return AppleTVPlayStatus.MEDIA_TYPE_CODE_NONE;
+            case 2:
+            case 7:
+            case 11:
+            case 12:
+            case 13:
+            case 18:
+            case 32:
+                return AppleTVPlayStatus.MEDIA_TYPE_CODE_VIDEO;
+            case 3:
+            case 4:
+            case 10:
+            case 14:
+            case 17:
+            case 21:
+            case 36:
+                return AppleTVPlayStatus.MEDIA_TYPE_CODE_MUSIC;
+            case 8:
+            case 64:
+                return AppleTVPlayStatus.MEDIA_TYPE_CODE_TV;
+            default:
+                return AppleTVPlayStatus.MEDIA_TYPE_CODE_UNKNOWN;
+        }
+    }
+
+    private static long msToSec(long ms) {
+        return ms >= MAX_TIME ? 0 : Math.round(ms / 1000.0);
+    }
+
+    /**
+     * Perform a DAAP request, login if required. A rejected request leads to a new login and gets retried once
+     * (like DaapRequester._do()). Login, request and retry share DAAP_TIMEOUT, so a slow device doesn't block the
+     * caller for a multiple of it.
+     */
+    private ByteBuffer request(String method, String cmd, String metricsName) throws AppleTVException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(DAAP_TIMEOUT);
+        boolean successful = false;
+        try {
+            if (sessionId == 0) {
+                login(deadline);
+            }
+            ByteBuffer data = execute(method, cmd, true, deadline);
+            if (data == null) {
+                logger.debug("Implicitly logged out, logging in again");
+                login(deadline);
+                data = execute(method, cmd, true, deadline);
+                if (data == null) {
+                    throw new AppleTVException("Request failed after login: " + cmd);
+                }
+            }
+            successful = true;
+            return data;
+        } finally {
+            metrics.bridgeCall(ipAddress, metricsName, 0, System.nanoTime() - start, successful);
+        }
+    }
+
+    private void login(long deadline) throws AppleTVException {
+        ByteBuffer data = execute("GET", "login?[AUTH]&hasFP=1", false, deadline);
+        long id = data != null ? DmapParser.uint(data, 0, MLOG, MLID) : 0;
+        if (id == 0) {
+            sessionId = 0;
+            throw new AppleTVException("Login failed, check the login id");
+        }
+        sessionId = id;
+        logger.debug("Logged in and got session id {}", sessionId);
+    }
+
+    /**
+     * @param deadline System.nanoTime() until the response has to be received
+     * @return response (valid until the next request), null: request was rejected (HTTP status not 2xx)
+     */
+    private @Nullable ByteBuffer execute(String method, String cmd, boolean session, long deadline)
+            throws AppleTVException {
+        String auth = session ? "session-id=" + sessionId
+                : (PAIRING_GUID.matcher(loginId).matches() ? "pairing-guid=" : "hsgid=") + loginId;
+        String url = baseUrl + cmd.replace("[AUTH]", auth);
+        logger.trace("{} {}", method, url);
+        HttpURLConnection connection = null;
+        try {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("no response within " + DAAP_TIMEOUT + "ms");
+            }
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            setHeaders(connection, (int) remaining);
+            if ("POST".equals(method)) {
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                connection.setDoOutput(true);
+                connection.getOutputStream().close();
+            }
+            int status = connection.getResponseCode();
+            // the response has to be read completely, otherwise the connection can't be reused
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            int length = in != null ? read(in, connection.getContentLength()) : 0;
+            if ((status < 200) || (status >= 300)) {
+                logger.debug("{} returned HTTP status {}", cmd, status);
+                return null;
+            }
+            return ByteBuffer.wrap(buffer, 0, length);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            throw new AppleTVException(e, "DAAP request to {0} failed: {1}", ipAddress, e.getMessage());
+        }
+    }
+
+    /**
+     * Check if the device responds with a server-info request, which needs no login and no session. Used as heartbeat
+     * while the device is idle, the interpreter isn't involved.
+     *
+     * @param ipAddress IP address of the Apple-TV
+     * @param timeout   connect/read timeout in ms
+     * @param metrics   records the request like a bridge call
+     * @return true: device responded
+     */
+    public static boolean heartbeat(String ipAddress, int timeout, AppleTVMetrics metrics) {
+        long start = System.nanoTime();
+        boolean successful = false;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    "http://" + ipAddress + ":" + DAAP_PORT + "/server-info").openConnection();
+            setHeaders(connection, timeout);
+            int status = connection.getResponseCode();
+            // read the (small) response, so the connection can be reused for the next heartbeat
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                try {
+                    byte[] discard = new byte[512];
+                    while (in.read(discard) >= 0) {
+                        // the content of server-info isn't needed
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            successful = (status >= 200) && (status < 300);
+        } catch (IOException e) {
+            // device doesn't respond
+        } finally {
+            metrics.bridgeCall(ipAddress, "heartbeat", 0, System.nanoTime() - start, successful);
+        }
+        return successful;
+    }
+
+    private static void setHeaders(HttpURLConnection connection, int timeout) {
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setRequestProperty("Accept", "*/*");
+        connection.setRequestProperty("Client-DAAP-Version", "3.12");
+        connection.setRequestProperty("Client-ATV-Sharing-Version", "1.2");
+        connection.setRequestProperty("Client-iTunes-Sharing-Version", "3.10");
+        connection.setRequestProperty("User-Agent", "Remote/1021");
+        connection.setRequestProperty("Viewer-Only-Client", "1");
+    }
+
+    private int read(InputStream in, int contentLength) throws IOException {
+        try {
+            if (contentLength > buffer.length) {
+                buffer = new byte[contentLength];
+            }
+            int length = 0;
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) >= 0) {
+                length += n;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            return length;
+        } finally {
+            in.close();
+        }
+    }
+}
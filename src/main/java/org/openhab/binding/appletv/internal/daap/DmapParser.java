@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.daap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.appletv.internal.daap.DmapTags.Tag;
+
+/**
+ * The {@link DmapParser} reads DMAP data (TLV: 4 byte tag, 4 byte big endian length, data) directly from a
+ * {@link ByteBuffer}. Other than dmap.py it doesn't build a tree: first() walks along a path of tags and returns a
+ * view of the value, only the values which are really needed get decoded.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class DmapParser {
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Look up a value given a path of tags, e.g. first(data, CMST, CAPS)
+     *
+     * @param data DMAP data from position to limit, the buffer position is not changed
+     * @param path tags, see {@link DmapTags#code(String)}
+     * @return view of the value (position=0, limit=length), null: not found
+     */
+    public static @Nullable ByteBuffer first(ByteBuffer data, int... path) {
+        int pos = data.position();
+        int end = data.limit();
+        for (int i = 0; i < path.length; i++) {
+            int found = -1;
+            while (pos + HEADER_SIZE <= end) {
+                int tag = data.getInt(pos);
+                int length = data.getInt(pos + 4);
+                if ((length < 0) || (pos + HEADER_SIZE + length > end)) {
+                    return null; // truncated data
+                }
+                if (tag == path[i]) {
+                    found = pos;
+                    break;
+                }
+                pos += HEADER_SIZE + length;
+            }
+            if (found < 0) {
+                return null;
+            }
+            pos = found + HEADER_SIZE;
+            end = pos + data.getInt(found + 4);
+        }
+        ByteBuffer value = data.duplicate();
+        value.limit(end).position(pos);
+        return value.slice();
+    }
+
+    /**
+     * @return unsigned value (up to 8 bytes, big endian), defaultValue: tag not found
+     */
+    public static long uint(ByteBuffer data, long defaultValue, int... path) {
+        ByteBuffer value = first(data, path);
+        return value != null ? readUint(value) : defaultValue;
+    }
+
+    /**
+     * @return value as UTF-8 string with trailing \0 stripped, null: tag not found
+     */
+    public static @Nullable String string(ByteBuffer data, int... path) {
+        ByteBuffer value = first(data, path);
+        return value != null ? readString(value) : null;
+    }
+
+    public static long readUint(ByteBuffer value) {
+        long result = 0;
+        for (int i = value.position(); i < value.limit(); i++) {
+            result = (result << 8) | (value.get(i) & 0xff);
+        }
+        return result;
+    }
+
+    public static String readString(ByteBuffer value) {
+        int start = value.position();
+        int end = value.limit();
+        while ((end > start) && (value.get(end - 1) == 0)) {
+            end--;
+        }
+        while ((start < end) && (value.get(start) == 0)) {
+            start++;
+        }
+        if (value.hasArray()) {
+            return new String(value.array(), value.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = value.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Format DMAP data for logging (like dmap.pprint())
+     */
+    public static String toString(ByteBuffer data) {
+        StringBuilder sb = new StringBuilder();
+        format(data, data.position(), data.limit(), 0, sb);
+        return sb.toString();
+    }
+
+    private static void format(ByteBuffer data, int start, int end, int indent, StringBuilder sb) {
+        int pos = start;
+        while (pos + HEADER_SIZE <= end) {
+            int code = data.getInt(pos);
+            int length = data.getInt(pos + 4);
+            if ((length < 0) || (pos + HEADER_SIZE + length > end)) {
+                sb.append("<truncated>\n");
+                return;
+            }
+            Tag tag = DmapTags.lookup(code);
+            for (int i = 0; i < indent; i++) {
+                sb.append(' ');
+            }
+            sb.append(DmapTags.name(code)).append(": ");
+            ByteBuffer value = data.duplicate();
+            value.limit(pos + HEADER_SIZE + length).position(pos + HEADER_SIZE);
+            switch (tag.type) {
+                case CONTAINER:
+                    sb.append("[container, ").append(tag.name).append("]\n");
+                    format(data, pos + HEADER_SIZE, pos + HEADER_SIZE + length, indent + 2, sb);
+                    break;
+                case UINT:
+                case BOOL:
+                    sb.append(readUint(value.slice())).append(" [").append(tag.name).append("]\n");
+                    break;
+                case STRING:
+                    sb.append(readString(value.slice())).append(" [").append(tag.name).append("]\n");
+                    break;
+                default:
+                    sb.append(length).append(" bytes [").append(tag.name).append("]\n");
+            }
+            pos += HEADER_SIZE + length;
+        }
+    }
+}
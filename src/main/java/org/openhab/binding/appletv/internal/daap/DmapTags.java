@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.daap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DmapTags} contains the DMAP tags known by the binding. The table mirrors lib/pyatv/tag_definitions.py,
+ * keep both in sync. Tags are stored as int (4 ASCII chars, big endian), so the parser compares tags without
+ * creating strings.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class DmapTags {
+    public enum Type {
+        UINT,
+        BOOL,
+        STRING,
+        RAW,
+        CONTAINER,
+        IGNORE,
+        UNKNOWN
+    }
+
+    public static class Tag {
+        public final String code;
+        public final Type type;
+        public final String name;
+
+        Tag(String code, Type type, String name) {
+            this.code = code;
+            this.type = type;
+            this.name = name;
+        }
+    }
+
+    public static final int CACI = code("caci");
+    public static final int CANA = code("cana");
+    public static final int CANG = code("cang");
+    public static final int CANL = code("canl");
+    public static final int CANN = code("cann");
+    public static final int CANT = code("cant");
+    public static final int CAPS = code("caps");
+    public static final int CARP = code("carp");
+    public static final int CASH = code("cash");
+    public static final int CAST = code("cast");
+    public static final int CMMK = code("cmmk");
+    public static final int CMSR = code("cmsr");
+    public static final int CMST = code("cmst");
+    public static final int MLID = code("mlid");
+    public static final int MLOG = code("mlog");
+    public static final int MSRV = code("msrv");
+
+    private static final Map<Integer, Tag> TAGS = new HashMap<>();
+
+    static {
+        add("aeFP", Type.UINT, "com.apple.itunes.req-fplay");
+        add("aeSV", Type.UINT, "com.apple.itunes.music-sharing-version");
+        add("apro", Type.UINT, "daap.protocolversion");
+        add("asgr", Type.UINT, "com.apple.itunes.gapless-resy");
+        add("ated", Type.BOOL, "daap.supportsextradata");
+        add("caar", Type.UINT, "dacp.albumrepeat");
+        add("caas", Type.UINT, "dacp.albumshuffle");
+        add("caci", Type.CONTAINER, "dacp.controlint");
+        add("cafe", Type.BOOL, "dacp.fullscreenenabled");
+        add("cafs", Type.UINT, "dacp.fullscreen");
+        add("cana", Type.STRING, "daap.nowplayingartist");
+        add("cang", Type.STRING, "dacp.nowplayinggenre");
+        add("canl", Type.STRING, "daap.nowplayingalbum");
+        add("cann", Type.STRING, "daap.nowplayingtrack");
+        add("cant", Type.UINT, "dacp.remainingtime");
+        add("capr", Type.UINT, "dacp.protocolversion");
+        add("caps", Type.UINT, "dacp.playstatus");
+        add("carp", Type.UINT, "dacp.repeatstate");
+        add("cash", Type.UINT, "dacp.shufflestate");
+        add("cast", Type.UINT, "dacp.tracklength");
+        add("casu", Type.UINT, "dacp.su");
+        add("cavc", Type.BOOL, "dacp.volumecontrollable");
+        add("cave", Type.BOOL, "dacp.dacpvisualizerenabled");
+        add("cavs", Type.UINT, "dacp.visualizer");
+        add("ceQR", Type.CONTAINER, "com.apple.itunes.playqueue-contents-response");
+        add("cmcp", Type.CONTAINER, "dmcp.controlprompt");
+        add("cmmk", Type.UINT, "dmcp.mediakind");
+        add("cmnm", Type.STRING, "dacp.devicename");
+        add("cmpa", Type.CONTAINER, "dacp.pairinganswer");
+        add("cmpg", Type.UINT, "dacp.pairingguid");
+        add("cmpr", Type.UINT, "dmcp.protocolversion");
+        add("cmsr", Type.UINT, "dmcp.serverrevision");
+        add("cmst", Type.CONTAINER, "dmcp.playstatus");
+        add("cmty", Type.STRING, "dacp.devicetype");
+        add("mdcl", Type.CONTAINER, "dmap.dictionary");
+        add("miid", Type.UINT, "dmap.itemid");
+        add("minm", Type.STRING, "dmap.itemname");
+        add("mlcl", Type.CONTAINER, "dmap.listing");
+        add("mlid", Type.UINT, "dmap.sessionid");
+        add("mlit", Type.CONTAINER, "dmap.listingitem");
+        add("mlog", Type.CONTAINER, "dmap.loginresponse");
+        add("mpro", Type.UINT, "dmap.protocolversion");
+        add("mrco", Type.UINT, "dmap.returnedcount");
+        add("msal", Type.BOOL, "dmap.supportsautologout");
+        add("msbr", Type.BOOL, "dmap.supportsbrowse");
+        add("msdc", Type.UINT, "dmap.databasescount");
+        add("msed", Type.BOOL, "dmap.supportsedit");
+        add("msex", Type.BOOL, "dmap.supportsextensions");
+        add("msix", Type.BOOL, "dmap.supportsindex");
+        add("mslr", Type.BOOL, "dmap.loginrequired");
+        add("mspi", Type.BOOL, "dmap.supportspersistentids");
+        add("msqy", Type.BOOL, "dmap.supportsquery");
+        add("msrv", Type.CONTAINER, "dmap.serverinforesponse");
+        add("mstc", Type.UINT, "dmap.utctime");
+        add("mstm", Type.UINT, "dmap.timeoutinterval");
+        add("msto", Type.UINT, "dmap.utcoffset");
+        add("mstt", Type.UINT, "dmap.status");
+        add("msup", Type.BOOL, "dmap.supportsupdate");
+        add("mtco", Type.UINT, "dmap.containercount");
+
+        // Tags with (yet) unknown purpose
+        add("aeFR", Type.UINT, "unknown tag");
+        add("aeSX", Type.UINT, "unknown tag");
+        add("asse", Type.UINT, "unknown tag");
+        add("atCV", Type.UINT, "unknown tag");
+        add("atSV", Type.UINT, "unknown tag");
+        add("caks", Type.UINT, "unknown tag");
+        add("caov", Type.UINT, "unknown tag");
+        add("casc", Type.UINT, "unknown tag");
+        add("cass", Type.UINT, "unknown tag");
+        add("ceQA", Type.UINT, "unknown tag");
+        add("ceSD", Type.RAW, "unknown tag");
+        add("cmbe", Type.STRING, "unknown tag");
+        add("cmcc", Type.STRING, "unknown tag");
+        add("cmce", Type.STRING, "unknown tag");
+        add("cmcv", Type.IGNORE, "unknown tag");
+        add("cmik", Type.UINT, "unknown tag");
+        add("cmsb", Type.UINT, "unknown tag");
+        add("cmsc", Type.UINT, "unknown tag");
+        add("cmsp", Type.UINT, "unknown tag");
+        add("cmsv", Type.UINT, "unknown tag");
+        add("cmte", Type.STRING, "unknown tag");
+        add("mscu", Type.UINT, "unknown tag");
+    }
+
+    private static final Tag UNKNOWN = new Tag("????", Type.UNKNOWN, "unknown tag");
+
+    private static void add(String code, Type type, String name) {
+        TAGS.put(code(code), new Tag(code, type, name));
+    }
+
+    /**
+     * Look up a tag, returns an UNKNOWN tag if the tag is not in the table
+     */
+    public static Tag lookup(int code) {
+        Tag tag = TAGS.get(code);
+        return tag != null ? tag : UNKNOWN;
+    }
+
+    public static boolean isContainer(int code) {
+        return lookup(code).type == Type.CONTAINER;
+    }
+
+    /**
+     * @param tag 4 char tag, e.g. "cmst"
+     * @return tag as int, like it's stored in the DMAP data
+     */
+    public static int code(String tag) {
+        byte[] b = tag.getBytes(StandardCharsets.US_ASCII);
+        return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    public static String name(int code) {
+        return new String(new byte[] { (byte) (code >>> 24), (byte) (code >>> 16), (byte) (code >>> 8), (byte) code },
+                StandardCharsets.US_ASCII);
+    }
+}
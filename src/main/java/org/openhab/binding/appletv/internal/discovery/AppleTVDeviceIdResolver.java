@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.discovery;
+
+import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.PROBE_TIMEOUT;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.binding.appletv.internal.AppleTVHandlerFactory;
+import org.openhab.binding.appletv.internal.AppleTVLogger;
+
+/**
+ * The {@link AppleTVDeviceIdResolver} resolves the device ids of discovered Apple-TVs. Each device gets probed with
+ * a unicast server-info request on its own thread with a timeout, so one unresponsive device doesn't delay the
+ * others. The ids are cached by address and login id, a device which is announced again is reported without a
+ * round trip. Concurrent requests for the same device share the pending probe.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class AppleTVDeviceIdResolver {
+    private final AppleTVLogger logger = new AppleTVLogger(AppleTVDeviceIdResolver.class, "Discovery");
+
+    private final AppleTVHandlerFactory handlerFactory;
+    private final Object handler;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param handlerFactory access to PyATV
+     * @param handler        receives info/debug messages from the PyATV module
+     * @param scheduler      runs the probes and timeouts
+     */
+    public AppleTVDeviceIdResolver(AppleTVHandlerFactory handlerFactory, Object handler,
+            ScheduledExecutorService scheduler) {
+        this.handlerFactory = handlerFactory;
+        this.handler = handler;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Get the device id, from the cache or by probing the device
+     *
+     * @return future device id, empty: device didn't respond within PROBE_TIMEOUT
+     */
+    public CompletableFuture<String> resolve(String ipAddress, String loginId) {
+        String deviceId = cache.get(key(ipAddress, loginId));
+        if (deviceId != null) {
+            logger.trace("Device id for {} from cache: {}", ipAddress, deviceId);
+            return CompletableFuture.completedFuture(deviceId);
+        }
+        return probe(ipAddress, loginId);
+    }
+
+    /**
+     * Probe the device even if the id is cached, e.g. to check if a known device is still alive
+     *
+     * @return future device id, empty: device didn't respond within PROBE_TIMEOUT
+     */
+    public CompletableFuture<String> probe(String ipAddress, String loginId) {
+        String key = key(ipAddress, loginId);
+        return pending.computeIfAbsent(key, k -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.whenComplete((deviceId, e) -> {
+                pending.remove(key, future);
+                if ((deviceId != null) && !deviceId.isEmpty()) {
+                    cache.put(key, deviceId);
+                } else {
+                    logger.debug("Device {} didn't respond to probe", ipAddress);
+                }
+            });
+            scheduler.execute(() -> future
+                    .complete(handlerFactory.probeDevice(handler, ipAddress, loginId, PROBE_TIMEOUT)));
+            // the Python side has its own timeout, this one covers a blocked bridge
+            scheduler.schedule(() -> future.complete(""), PROBE_TIMEOUT + 1000, TimeUnit.MILLISECONDS);
+            return future;
+        });
+    }
+
+    private static String key(String ipAddress, String loginId) {
+        return ipAddress + "/" + loginId;
+    }
+}
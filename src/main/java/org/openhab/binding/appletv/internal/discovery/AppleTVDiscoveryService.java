@@ -17,10 +17,10 @@ import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -42,9 +42,12 @@ import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 
 /**
- * The {@link AppleTVDiscoveryService} is used to discover AppleTV devices.
+ * The {@link AppleTVDiscoveryService} is used to discover AppleTV devices. The PyATV module listens for zeroconf
+ * announcements (home sharing and touch-able services) in the background and reports devices as they come and go,
+ * there is no periodic scan through the bridge. A manual scan runs a full zeroconf scan in addition.
  *
  * @author Markus Michels - Initial contribution
  */
@@ -52,18 +55,20 @@ import com.google.gson.Gson;
 public class AppleTVDiscoveryService extends AbstractDiscoveryService {
     private final AppleTVLogger logger = new AppleTVLogger(AppleTVHandler.class, "Discovery");
     private AppleTVHandlerFactory handlerFactory = null;
-    private ScheduledFuture<?> discoveryJob;
+    private boolean listening = false;
     private final AppleTVBindingConfiguration bindingConfig = new AppleTVBindingConfiguration();
+    private final Map<String, ATVDevice> devices = new ConcurrentHashMap<>(); // key is the ip address
+    private @Nullable AppleTVDeviceIdResolver resolver;
 
-    class ATVDevice {
+    static class ATVDevice {
         String deviceId = "";
         String name = "";
         String ipAddress = "";
         String loginId = "";
     }
 
-    class ATVDeviceList {
-        ArrayList<ATVDevice> devices = new ArrayList<>();
+    static class ATVDeviceList {
+        List<ATVDevice> devices = new ArrayList<>();
     }
 
     public AppleTVDiscoveryService() {
@@ -93,6 +98,7 @@ public class AppleTVDiscoveryService extends AbstractDiscoveryService {
 
     @Override
     public void deactivate() {
+        stopListener();
         super.deactivate();
     }
 
@@ -102,42 +108,94 @@ public class AppleTVDiscoveryService extends AbstractDiscoveryService {
     }
 
     /**
-     * Start device discovery
+     * Manual scan (Inbox): make sure the listener is running and re-probe all known devices in parallel (unicast),
+     * the devices still responding get reported again. The zeroconf scan finds devices, which were not announced
+     * while the listener was running.
      */
     @Override
     protected void startScan() {
-        if (handlerFactory == null) {
+        AppleTVDeviceIdResolver r = resolver;
+        if ((handlerFactory == null) || (r == null)) {
             logger.info("Factory not initialized, skip scan");
             return;
         }
 
-        // Example for background initialization:
         logger.info("Starting Apple-TV discovery");
-        try {
-            String jsonDevices = handlerFactory.scanDevices();
-
-            Gson gson = new Gson();
-            ATVDeviceList devList = gson.fromJson(jsonDevices, ATVDeviceList.class);
-            for (ATVDevice dev : devList.devices) {
-                handlerFactory.sendCommands(COMMAND_DEVICE_ID, handlerFactory, dev.ipAddress, dev.loginId);
-                dev.deviceId = handlerFactory.getLastDeviceId(); // set by callback
-                logger.info("Device {} discovered: ipAddress={}, deviceId={}, loginId={}", dev.name, dev.ipAddress,
-                        dev.deviceId, dev.loginId);
-
-                Map<String, Object> properties = new HashMap<>();
-                properties.put(PROPERTY_ID, dev.deviceId);
-                properties.put(PROPERTY_VENDOR, "Apple");
-                properties.put(PROPERTY_IP, dev.ipAddress);
-                properties.put(PROPERTY_LOGIN_ID, dev.loginId);
-                thingDiscovered(createDiscoveryResult(dev, properties));
+        startListener();
+        for (ATVDevice dev : devices.values()) {
+            r.probe(dev.ipAddress, dev.loginId).thenAccept(deviceId -> {
+                if (deviceId.equals(dev.deviceId)) {
+                    thingDiscovered(createDiscoveryResult(dev));
+                }
+            });
+        }
+        handlerFactory.scanDevices(scheduler).whenComplete((json, e) -> {
+            if (e != null) {
+                logger.info("Device scan failed: {}", e.getMessage());
+                return;
+            }
+            try {
+                ATVDeviceList devList = new Gson().fromJson(json, ATVDeviceList.class);
+                if (devList != null) {
+                    for (ATVDevice dev : devList.devices) {
+                        deviceAdded(dev.name, dev.ipAddress, dev.loginId);
+                    }
+                }
+            } catch (JsonSyntaxException ex) {
+                logger.info("Unable to parse scan result {}: {}", json, ex.getMessage());
             }
-        } catch (Exception e) {
-            logger.debug("Discovery failed");
+        });
+    }
+
+    /**
+     * Callback from the PyATV module (zeroconf thread): a device was announced. Resolving the device id requires a
+     * call into the bridge, which is done on the scheduler to release the zeroconf thread.
+     */
+    public void deviceAdded(String name, String ipAddress, String loginId) {
+        if (loginId.isEmpty()) {
+            logger.info("Device {} at {} found, but Home Sharing is disabled", name, ipAddress);
+            return;
+        }
+        AppleTVDeviceIdResolver r = resolver;
+        if (r == null) {
+            return;
+        }
+        ATVDevice dev = new ATVDevice();
+        dev.name = name;
+        dev.ipAddress = ipAddress;
+        dev.loginId = loginId;
+        r.resolve(ipAddress, loginId).thenAccept(deviceId -> deviceResolved(dev, deviceId));
+    }
+
+    /**
+     * Callback from the PyATV module (zeroconf thread): the device has gone
+     */
+    public void deviceRemoved(String ipAddress) {
+        ATVDevice dev = devices.remove(ipAddress);
+        if ((dev != null) && !dev.deviceId.isEmpty()) {
+            logger.info("Device {} at {} removed", dev.name, ipAddress);
+            thingRemoved(createThingUID(dev));
+        }
+    }
+
+    private void deviceResolved(ATVDevice dev, String deviceId) {
+        if (deviceId.isEmpty()) {
+            logger.info("Unable to get device id for {} at {}", dev.name, dev.ipAddress);
+            return;
         }
-        logger.info("Apple-TV discovery completed");
+        dev.deviceId = deviceId;
+        logger.info("Device {} discovered: ipAddress={}, deviceId={}, loginId={}", dev.name, dev.ipAddress,
+                dev.deviceId, dev.loginId);
+        devices.put(dev.ipAddress, dev);
+        thingDiscovered(createDiscoveryResult(dev));
     }
 
-    private DiscoveryResult createDiscoveryResult(ATVDevice device, Map<String, Object> properties) {
+    private DiscoveryResult createDiscoveryResult(ATVDevice device) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(PROPERTY_ID, device.deviceId);
+        properties.put(PROPERTY_VENDOR, "Apple");
+        properties.put(PROPERTY_IP, device.ipAddress);
+        properties.put(PROPERTY_LOGIN_ID, device.loginId);
         ThingUID thingUID = createThingUID(device);
         return DiscoveryResultBuilder.create(thingUID).withLabel(device.name).withProperties(properties)
                 .withRepresentationProperty(PROPERTY_ID).build();
@@ -147,12 +205,24 @@ public class AppleTVDiscoveryService extends AbstractDiscoveryService {
         return new ThingUID(THING_TYPE_APPLETV, device.deviceId);
     }
 
-    @Override
-    public synchronized void stopScan() {
-        if (discoveryJob != null) {
-            discoveryJob.cancel(true);
+    private synchronized void startListener() {
+        if (!listening && (handlerFactory != null)) {
+            logger.info("Starting background discovery");
+            listening = handlerFactory.startDiscovery(this);
         }
+    }
 
+    private synchronized void stopListener() {
+        if (listening && (handlerFactory != null)) {
+            logger.info("Stopping background discovery");
+            handlerFactory.stopDiscovery();
+        }
+        listening = false;
+        devices.clear();
+    }
+
+    @Override
+    public synchronized void stopScan() {
         if (handlerFactory == null) {
             return;
         }
@@ -163,30 +233,44 @@ public class AppleTVDiscoveryService extends AbstractDiscoveryService {
 
     @Override
     protected void startBackgroundDiscovery() {
+        startListener();
     }
 
     @Override
     protected void stopBackgroundDiscovery() {
-        logger.info("Stopping background discovery");
-        stopScan();
+        stopListener();
     }
 
     @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
     public void setAppleTVHandlerFactory(AppleTVHandlerFactory handlerFactory) {
         if (handlerFactory != null) {
             this.handlerFactory = handlerFactory;
+            resolver = new AppleTVDeviceIdResolver(handlerFactory, this, scheduler);
             logger.debug("HandlerFactory bound to AppleTVDiscoveryService");
             handlerFactory.setBindingConfig(bindingConfig);
-
-            logger.info("Starting background discovery");
-            if (discoveryJob == null || discoveryJob.isCancelled()) {
-                discoveryJob = scheduler.scheduleWithFixedDelay(this::startScan, 20, 15 * 60, TimeUnit.SECONDS);
+            if (isBackgroundDiscoveryEnabled()) {
+                startListener();
             }
         }
     }
 
     public void unsetAppleTVHandlerFactory(AppleTVHandlerFactory handlerFactory) {
+        stopListener();
         this.handlerFactory = null;
+        resolver = null;
     }
 
+    /**
+     * This function will be called from the PyATV module to display an info message
+     */
+    public void info(String message) {
+        logger.info("{}", message);
+    }
+
+    /**
+     * This function will be called from the PyATV module to display a debug message
+     */
+    public void debug(String message) {
+        logger.debug("{}", message);
+    }
 }
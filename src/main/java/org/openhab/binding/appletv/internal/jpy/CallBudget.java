@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.jpy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link CallBudget} limits the calls per second into the embedded interpreter for all devices. It's a lock-free
+ * token bucket (GCRA): each call moves the theoretical arrival time by 1/rate, a call is allowed while this time is
+ * less than a burst ahead of now.
+ *
+ * Interactive calls (keys, commands) may use the full burst and wait for their turn. Background calls (polls) may
+ * only use half of the burst and never wait, so a remote key always finds a free slot.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class CallBudget {
+    public static final CallBudget UNLIMITED = new CallBudget(0);
+
+    private final long emission; // ns per call
+    private final long interactiveTolerance;
+    private final long backgroundTolerance;
+    private final AtomicLong arrival = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param callsPerSecond max calls per second (burst up to one second), 0=unlimited
+     */
+    public CallBudget(int callsPerSecond) {
+        emission = callsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / callsPerSecond : 0;
+        interactiveTolerance = emission * Math.max(callsPerSecond - 1, 0);
+        backgroundTolerance = interactiveTolerance / 2;
+    }
+
+    public boolean isLimited() {
+        return emission > 0;
+    }
+
+    /**
+     * Take a slot for a background call, never waits
+     *
+     * @return true: call allowed, false: budget exhausted, skip the call
+     */
+    public boolean tryAcquireBackground() {
+        return acquire(backgroundTolerance, 0) == 0;
+    }
+
+    /**
+     * Return a slot taken by tryAcquireBackground(), which wasn't used
+     */
+    public void release() {
+        if (emission > 0) {
+            arrival.addAndGet(-emission);
+        }
+    }
+
+    /**
+     * Take a slot for an interactive call, waits until the slot is due
+     *
+     * @param maxWait max ms to wait for a slot
+     * @return true: call allowed, false: no slot within maxWait
+     */
+    public boolean acquireInteractive(long maxWait) {
+        long wait = acquire(interactiveTolerance, TimeUnit.MILLISECONDS.toNanos(maxWait));
+        if (wait < 0) {
+            return false;
+        }
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false; // the slot is lost, that's ok
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reserve the next slot
+     *
+     * @return ns to wait until the reserved slot is due, -1: no slot within maxWait (nothing reserved)
+     */
+    private long acquire(long tolerance, long maxWait) {
+        if (emission == 0) {
+            return 0;
+        }
+        while (true) {
+            long now = System.nanoTime();
+            long current = arrival.get();
+            long start = (current - now > 0) ? current : now;
+            long wait = start - now - tolerance;
+            if (wait > maxWait) {
+                return -1;
+            }
+            if (arrival.compareAndSet(current, start + emission)) {
+                return Math.max(wait, 0);
+            }
+        }
+    }
+}
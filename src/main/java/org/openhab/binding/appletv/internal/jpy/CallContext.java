@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.jpy;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.binding.appletv.internal.AppleTVException;
+import org.openhab.binding.appletv.internal.AppleTVLogger;
+
+/**
+ * The {@link CallContext} is passed as handler to a single PyATV call, which delivers its result through a
+ * callback (devicesDiscovered(), generatedDeviceId(), statusEvent()). The result is bound to this call and returned as
+ * future, concurrent calls can't pick up each other's results. The future completes when the callback arrives, it fails
+ * when the call returns without the result.
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class CallContext {
+    private final AppleTVLogger logger = new AppleTVLogger(CallContext.class, "PyATV");
+
+    public static final String RESULT_DEVICES = "devices";
+    public static final String RESULT_DEVICE_ID = "device_id";
+    public static final String RESULT_LOGIN_ID = "login_id";
+
+    private final String command;
+    private final String resultName;
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+
+    /**
+     * @param command    command of the call (for logging)
+     * @param resultName result expected from the call, see RESULT_xxx
+     */
+    public CallContext(String command, String resultName) {
+        this.command = command;
+        this.resultName = resultName;
+    }
+
+    public CompletableFuture<String> getResult() {
+        return result;
+    }
+
+    /**
+     * The call has returned, fail the future if the result wasn't delivered
+     *
+     * @param successful false: call failed
+     */
+    void completed(boolean successful) {
+        if (!result.isDone()) {
+            result.completeExceptionally(new AppleTVException(
+                    "Call '" + command + "' " + (successful ? "returned no " + resultName : "failed")));
+        }
+    }
+
+    private void deliver(String name, String value) {
+        if (name.equals(resultName)) {
+            result.complete(value);
+        } else {
+            logger.debug("Unexpected result '{}' for call '{}'", name, command);
+        }
+    }
+
+    /*
+     * Callbacks from the PyATV module
+     */
+
+    public void devicesDiscovered(String json) {
+        logger.debug("Discovered devices: {}", json);
+        deliver(RESULT_DEVICES, json);
+    }
+
+    public void generatedDeviceId(String id) {
+        deliver(RESULT_DEVICE_ID, id);
+    }
+
+    public void statusEvent(String prop, String value) {
+        deliver(prop, value);
+    }
+
+    public void info(String message) {
+        logger.info("{}", message);
+    }
+
+    public void debug(String message) {
+        logger.debug("{}", message);
+    }
+}
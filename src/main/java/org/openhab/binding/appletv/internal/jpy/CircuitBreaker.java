@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.jpy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link CircuitBreaker} protects the bridge from a device, which doesn't respond (e.g. powered off). After
+ * failureThreshold consecutive failures the breaker opens and all calls fail fast. When the retry interval has passed
+ * one caller gets HALF_OPEN and probes the device with a cheap request: success closes the breaker, failure opens it
+ * again with a doubled retry interval (up to maxRetryInterval).
+ *
+ * @author markus7017 - Initial contribution
+ */
+@NonNullByDefault
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, // calls pass
+        OPEN, // calls fail fast
+        HALF_OPEN // one probe is in progress
+    }
+
+    private final int failureThreshold;
+    private final long minRetryInterval; // ns
+    private final long maxRetryInterval; // ns
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long retryInterval;
+    private long retryTime = 0;
+    private String reason = "";
+
+    /**
+     * @param failureThreshold consecutive failures, which open the breaker
+     * @param minRetryInterval sec before the first probe
+     * @param maxRetryInterval max sec between two probes
+     */
+    public CircuitBreaker(int failureThreshold, int minRetryInterval, int maxRetryInterval) {
+        this.failureThreshold = failureThreshold;
+        this.minRetryInterval = TimeUnit.SECONDS.toNanos(minRetryInterval);
+        this.maxRetryInterval = TimeUnit.SECONDS.toNanos(Math.max(minRetryInterval, maxRetryInterval));
+        this.retryInterval = this.minRetryInterval;
+    }
+
+    /**
+     * Decide about the next call
+     *
+     * @param now System.nanoTime()
+     * @return CLOSED: execute the call, HALF_OPEN: probe the device before, OPEN: fail fast
+     */
+    public synchronized State allowRequest(long now) {
+        if ((state == State.OPEN) && (now - retryTime >= 0)) {
+            state = State.HALF_OPEN;
+            return State.HALF_OPEN;
+        }
+        return state == State.CLOSED ? State.CLOSED : State.OPEN;
+    }
+
+    /**
+     * The device responded (call or probe)
+     *
+     * @return true: the breaker was open before
+     */
+    public synchronized boolean recordSuccess() {
+        boolean wasOpen = state != State.CLOSED;
+        state = State.CLOSED;
+        failures = 0;
+        retryInterval = minRetryInterval;
+        reason = "";
+        return wasOpen;
+    }
+
+    /**
+     * The device didn't respond (call or probe)
+     *
+     * @param reason description of the failure, reported while the breaker is open
+     * @param now    System.nanoTime()
+     * @return true: the breaker opened with this failure
+     */
+    public synchronized boolean recordFailure(String reason, long now) {
+        if (state == State.HALF_OPEN) {
+            retryInterval = Math.min(retryInterval * 2, maxRetryInterval);
+            state = State.OPEN;
+            retryTime = now + retryInterval;
+            return false;
+        }
+        if ((state == State.CLOSED) && (++failures >= failureThreshold)) {
+            state = State.OPEN;
+            retryTime = now + retryInterval;
+            this.reason = reason;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return state + (state == State.CLOSED ? "" : " (" + reason + ")");
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2010-2019 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.appletv.internal.jpy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.openhab.binding.appletv.internal.AppleTVHandler;
+import org.openhab.binding.appletv.internal.AppleTVLogger;
+
+/**
+ * The {@link LibCache} installs the bundled runtime modules (pyatv, jpy) into a persistent cache folder. The folder
+ * name is derived from a hash of the bundled resources, so unchanged resources are installed only once. A new
+ * version is unpacked into a staging folder and moved in place atomically, older versions get pruned.
+ *
+ * @author markus7017 - Initial contribution
+ */
+public class LibCache {
+    private final AppleTVLogger logger = new AppleTVLogger(LibCache.class, "LibCache");
+
+    private static final String VERSION_PREFIX = "pyatv-";
+    private static final String STAGING_PREFIX = ".staging-";
+    private static final String COMPLETE_MARKER = ".complete";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path baseDir;
+
+    public LibCache(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Make sure the given class path resources are installed in the cache
+     *
+     * @param resources class path resources
+     * @param extract   zip files from resources, which get extracted
+     * @return folder containing the installed resources
+     * @throws IOException unable to install the resources
+     */
+    public Path install(List<String> resources, Collection<String> extract) throws IOException {
+        long start = System.currentTimeMillis();
+        Files.createDirectories(baseDir);
+        Path target = baseDir.resolve(VERSION_PREFIX + hashResources(resources));
+        if (Files.exists(target.resolve(COMPLETE_MARKER))) {
+            logger.debug("Modules are up to date in '{}' ({}ms)", target, System.currentTimeMillis() - start);
+            prune(target);
+            return target;
+        }
+
+        logger.info("Installing modules in '{}'", target);
+        Path staging = Files.createTempDirectory(baseDir, STAGING_PREFIX);
+        try {
+            for (String resource : resources) {
+                String name = resource.contains("/") ? resource.substring(resource.lastIndexOf('/') + 1) : resource;
+                Path file = staging.resolve(name);
+                try (InputStream stream = open(resource)) {
+                    if (stream == null) {
+                        logger.debug("Resource '{}' not bundled, skipped", resource);
+                        continue;
+                    }
+                    Files.copy(stream, file);
+                }
+                if (extract.contains(resource)) {
+                    ZipUtils.extract(file.toFile(), staging.toFile());
+                }
+            }
+            Files.createFile(staging.resolve(COMPLETE_MARKER));
+
+            try {
+                Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                if (Files.exists(target.resolve(COMPLETE_MARKER))) {
+                    logger.debug("Modules were installed concurrently, using '{}'", target);
+                } else {
+                    // left over from an interrupted installation without atomic move support
+                    delete(target);
+                    Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        } finally {
+            if (Files.exists(staging)) {
+                delete(staging);
+            }
+        }
+        logger.debug("Modules installed ({}ms)", System.currentTimeMillis() - start);
+        prune(target);
+        return target;
+    }
+
+    private String hashResources(List<String> resources) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (String resource : resources) {
+                digest.update(resource.getBytes(StandardCharsets.UTF_8));
+                try (InputStream stream = open(resource)) {
+                    if (stream == null) {
+                        digest.update((byte) 0);
+                        continue;
+                    }
+                    int count;
+                    while ((count = stream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, count);
+                    }
+                }
+            }
+
+            StringBuilder hex = new StringBuilder();
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 8; i++) { // 64 bit are enough for a folder name
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Remove older versions and left over staging folders
+     */
+    private void prune(Path current) {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(baseDir)) {
+            for (Path dir : dirs) {
+                String name = dir.getFileName().toString();
+                if (!dir.equals(current) && (name.startsWith(VERSION_PREFIX) || name.startsWith(STAGING_PREFIX))) {
+                    logger.debug("Removing outdated modules in '{}'", dir);
+                    delete(dir);
+                }
+            }
+        } catch (IOException e) {
+            logger.info("Unable to prune module cache: {} ({})", e.getMessage(), e.getClass());
+        }
+    }
+
+    /**
+     * Check if a resource is available on the class path
+     */
+    public static boolean isBundled(String resource) {
+        return AppleTVHandler.class.getClassLoader().getResource(resource) != null;
+    }
+
+    private static InputStream open(String resource) {
+        return AppleTVHandler.class.getClassLoader().getResourceAsStream(resource);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -11,24 +11,27 @@ package org.openhab.binding.appletv.internal.jpy;
 
 import static org.openhab.binding.appletv.internal.AppleTVBindingConstants.*;
 
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.lang.StringUtils;
+import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.jpy.PyLib;
 import org.jpy.PyModule;
 import org.jpy.PyObject;
 import org.openhab.binding.appletv.internal.AppleTVHandler;
 import org.openhab.binding.appletv.internal.AppleTVHandlerFactory;
 import org.openhab.binding.appletv.internal.AppleTVLogger;
+import org.openhab.binding.appletv.internal.AppleTVMetrics;
 
 /**
  * The {@link LibPyATV} wraps the PyATV library
@@ -41,13 +44,61 @@ public class LibPyATV {
         PyObject init(AppleTVHandler handler);
 
         PyObject exec(Object handler, String[] arg);
+
+        // typed API, timeout: remaining ms of the call's deadline, the coroutine gets cancelled when it expires
+
+        PyObject playing(Object handler, String address, String loginId, int timeout);
+
+        PyObject press(Object handler, String address, String loginId, String[] keys, int keyDelay,
+                int gestureFrames, int timeout);
+
+        PyObject setPosition(Object handler, String address, String loginId, int seconds, int timeout);
+
+        PyObject setShuffle(Object handler, String address, String loginId, boolean on, int timeout);
+
+        PyObject setRepeat(Object handler, String address, String loginId, int mode, int timeout);
+
+        PyObject artwork(Object handler, String address, String loginId, int timeout);
+
+        PyObject subscribe(Object handler, String address, String loginId);
+
+        PyObject unsubscribe(String address, String loginId);
+
+        PyObject close(String address, String loginId);
+
+        PyObject probe(Object handler, String address, String loginId, int timeout);
+
+        PyObject startDiscovery(Object handler);
+
+        PyObject stopDiscovery();
+    }
+
+    /**
+     * A call into the PyATV module with the remaining ms of its deadline
+     */
+    @FunctionalInterface
+    private interface ProxyCall {
+        PyObject apply(PyATVProxy proxy, int timeout);
     }
 
     private final AppleTVLogger logger = new AppleTVLogger(AppleTVHandlerFactory.class, "PyATV");
 
+    private static final String PYATV_ARCHIVE = "lib/pyatv.zip";
+    private static final String PYC_ARCHIVE = "pyatv-pyc.zip";
+
+    // return codes of the PyATV module
+    private static final int RESULT_NONE = -1; // no result, e.g. bridge error
+    private static final int RESULT_OK = 0;
+    private static final int RESULT_FAILED = 1; // command failed, but the device responded
+    private static final int RESULT_UNREACHABLE = 2; // connection error or deadline expired
+    private static final int MIN_CALL_TIMEOUT = 100; // ms, calls with less time left are dropped
+
     private Path libPath;
     private PyATVProxy pyATV;
-    private Semaphore accessMutex = new Semaphore(1);
+    private final Map<String, Semaphore> lanes = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private AppleTVMetrics metrics = AppleTVMetrics.DISABLED;
+    private CallBudget budget = CallBudget.UNLIMITED;
 
     private boolean started = false;
 
@@ -55,27 +106,34 @@ public class LibPyATV {
 
     }
 
+    /**
+     * Use an existing proxy, e.g. a fake implementation for benchmarks, Python doesn't get started.
+     *
+     * @param pyATV PyATV module proxy
+     */
+    public LibPyATV(PyATVProxy pyATV) {
+        this.pyATV = pyATV;
+    }
+
+    /**
+     * Install the bundled modules and start Python
+     *
+     * @param currentLibPath cache folder for the bundled modules, empty: &lt;userdata&gt;/appletv
+     */
     @SuppressWarnings("null")
     public LibPyATV(String currentLibPath) {
 
         try {
             logger.debug("Initialize PyATV (current installation path: '{}')", currentLibPath);
 
-            // if ((currentLibPath == null) || currentLibPath.isEmpty()) {
-            libPath = Files.createTempDirectory("ohlib-");
-            logger.info("Modules will be installed in '{}'", libPath.toString());
-            // } else {
-            // libPath = Paths.get(currentLibPath);
-            // }
+            Path cachePath = (currentLibPath == null) || currentLibPath.isEmpty()
+                    ? Paths.get(ConfigConstants.getUserDataFolder(), "appletv")
+                    : Paths.get(currentLibPath);
 
             String os = System.getProperty("os.name").toLowerCase();
             String platform = System.getProperty("os.arch").toLowerCase();
             logger.debug("Platform info: '{}', architecture: '{}'", os, platform);
 
-            List<String> cleanedExtraPaths = new ArrayList<>();
-            cleanedExtraPaths.add(libPath.toString());
-
-            String jpyPath = libPath.toString();
             String jpyLib = "";
             System.setProperty("jpy.debug", "true");
             if (os.contains("linux") || os.contains("mac")) {
@@ -91,8 +149,6 @@ public class LibPyATV {
                         // "/usr/local/Cellar/python/3.6.5/Frameworks/Python.framework/Versions/3.6/lib/libpython3.6.dylib");
                         "/Library/Frameworks/Python.framework/Versions/3.6/lib/libpython3.6.dylib");
                 jpyLib = "lib/jpy/lib.macosx-x86_64-3.6";
-                System.setProperty("jpy.jpyLib", jpyPath + "/jpy.so");
-                System.setProperty("jpy.jdlLib", jpyPath + "/jdl.so");
             } else if (os.contains("linux") && platform.contains("arm")) { // Raspberry
                 // System.setProperty("jpy.jpyLib", "jpy.cpython-35m-arm-linux-gnueabihf.so");
                 // System.setProperty("jpy.jdlLib", "jdl.cpython-35m-arm-linux-gnueabihf.so");
@@ -100,17 +156,44 @@ public class LibPyATV {
                 System.setProperty("jpy.pythonLib", "/usr/lib/arm-linux-gnueabihf/libpython3.5m.so");
                 // jpyLib = "lib/jpy/lib.linux-armv7l-3.6";
                 // System.setProperty("jpy.pythonLib", "/usr/local/lib/libpython3.6m.so");
-                System.setProperty("jpy.jpyLib", jpyPath + "/jpy.so");
-                System.setProperty("jpy.jdlLib", jpyPath + "/jdl.so");
             } else if (os.contains("linux") && (platform.contains("x86_64") || platform.contains("amd64"))) { // Synology
                 jpyLib = "lib/jpy/lib.synology-x86-64-3.5";
-                System.setProperty("jpy.jpyLib", jpyPath + "/jpy.so");
-                System.setProperty("jpy.jdlLib", jpyPath + "/jdl.so");
                 System.setProperty("jpy.pythonLib", "/usr/lib/x86_64-linux-gnu/libpython3.5m.so");
             } else {
                 throw new Exception(
                         "Architecture not supported yet, please contact the author and provde platform information");
             }
+
+            // Use the precompiled archive for the platform's Python version if the build provides one
+            // (see lib/tools/build_pyc_archive.py), otherwise the sources get extracted and compiled by Python
+            String pycArchive = jpyLib + "/" + PYC_ARCHIVE;
+            boolean zipImport = !jpyLib.isEmpty() && LibCache.isBundled(pycArchive);
+            List<String> resources = new ArrayList<>();
+            resources.add(zipImport ? pycArchive : PYATV_ARCHIVE); // PyATV library
+            resources.add("lib/jpy-0.10.0-SNAPSHOT.jar");
+            if (!jpyLib.isEmpty()) {
+                logger.debug("jpyLib={}", jpyLib);
+                resources.add(jpyLib + "/jpy.so"); // python_runtime_module
+                resources.add(jpyLib + "/jdl.so"); // python_runtime_module
+                resources.add(jpyLib + "/jpyutil.py"); // python util
+            }
+
+            // unchanged modules are installed only once, see LibCache
+            long start = System.currentTimeMillis();
+            libPath = new LibCache(cachePath).install(resources,
+                    zipImport ? Collections.emptyList() : Collections.singletonList(PYATV_ARCHIVE));
+            logger.info("Modules are installed in '{}' ({}, {}ms)", libPath.toString(),
+                    zipImport ? "zipimport" : "extracted", System.currentTimeMillis() - start);
+
+            String jpyPath = libPath.toString();
+            System.setProperty("jpy.jpyLib", jpyPath + "/jpy.so");
+            System.setProperty("jpy.jdlLib", jpyPath + "/jdl.so");
+
+            // zipimport supports sub folders of an archive, so both variants use the same layout
+            String pyatvPath = zipImport ? jpyPath + "/" + PYC_ARCHIVE : jpyPath;
+            List<String> cleanedExtraPaths = new ArrayList<>();
+            cleanedExtraPaths.add(pyatvPath);
+            cleanedExtraPaths.add(pyatvPath + "/pyatv");
             // cleanedExtraPaths.add("/usr/local/lib/python3.6/dist-packages");
             // cleanedExtraPaths.add("/usr/local/lib/python3.6/site-packages");
             cleanedExtraPaths.add("/usr/local/lib/python3.5/dist-packages");
@@ -118,77 +201,64 @@ public class LibPyATV {
             cleanedExtraPaths.add("/usr/lib/python3/dist-packages");
             cleanedExtraPaths.add("/usr/lib/python3/site-packages");
 
-            List<String> extraPaths = new ArrayList<>();
-            extraPaths.add("classpath:lib/pyatv.zip"); // PyATV library
-            extraPaths.add("classpath:lib/jpy-0.10.0-SNAPSHOT.jar");
-            if (!jpyLib.isEmpty()) {
-                logger.debug("jpyLib={}", jpyLib);
-                extraPaths.add("classpath:" + jpyLib + "/jpy.so"); // python_runtime_module
-                extraPaths.add("classpath:" + jpyLib + "/jdl.so"); // python_runtime_module
-                extraPaths.add("classpath:" + jpyLib + "/jpyutil.py"); // python util
-            }
-
             logger.debug("jpy.pythonExecutable: {}", System.getProperty("jpy.pythonExecutable"));
             logger.debug("jpy.pythonLib: {}", System.getProperty("jpy.pythonLib"));
             logger.debug("jpy.jpyLib: {}", System.getProperty("jpy.jpyLib"));
             logger.debug("jpy.jdlLib: {}", System.getProperty("jpy.jdlLib"));
             logger.debug("jpy.pythonPrefix: {}", System.getProperty("jpy.pythonPrefix"));
 
-            // Runtime.getRuntime()
-            // .addShutdownHook(new Thread(() -> FileSystemUtils.deleteRecursively(tempDirectory.toFile())));
-            extraPaths.forEach(lib -> {
-                if (lib.startsWith("classpath:")) {
-                    try {
-                        String finalLib = lib.replace("classpath:", "");
-                        String targetName = finalLib.contains("/") ? StringUtils.substringAfterLast(lib, "/")
-                                : finalLib;
-                        Path target = Paths.get(libPath.toString(), targetName);
-                        try (InputStream stream = AppleTVHandler.class.getClassLoader().getResourceAsStream(finalLib)) {
-                            Files.copy(stream, target, StandardCopyOption.REPLACE_EXISTING);
-                        }
-                        if (finalLib.endsWith(".zip")) {
-                            ZipUtils.extract(target.toFile(), libPath.toFile());
-                            String zipPath = libPath + "/" + targetName.replaceAll(".zip", "");
-                            cleanedExtraPaths.add(zipPath);
-                        }
-                    } catch (Exception e) {
-                        logger.error("Unable to install PyATV library: {} ({})", e.getMessage(), e.getClass());
-                    }
-                } else {
-                    cleanedExtraPaths.add(lib);
-                }
-            });
-
             if (!PyLib.isPythonRunning()) {
                 logger.debug("Starting Python");
+                start = System.currentTimeMillis();
                 PyLib.startPython(cleanedExtraPaths.toArray(new String[] {}));
                 started = true;
+                logger.debug("Python started ({}ms)", System.currentTimeMillis() - start);
             }
 
             // Proxify the call to a python class
             logger.info("load PyATV");
+            start = System.currentTimeMillis();
             PyModule pyModule = PyModule.importModule("pyatv_api");
+            long imported = System.currentTimeMillis();
             PyObject pyObject = pyModule.call("PyATV");
             pyATV = pyObject.createProxy(PyATVProxy.class);
             if (pyATV == null) {
                 throw new Exception("Unable to initialize PyATV access");
             }
+            logger.info("PyATV loaded (import {}ms, proxy {}ms)", imported - start,
+                    System.currentTimeMillis() - imported);
         } catch (Exception e) {
             logger.error("Unable to start Python (jpy): {} ({})", e.getMessage(), e.getClass());
         }
     }
 
     public void init(AppleTVHandler thingHandler) {
+        Semaphore lane = lane("", "");
         boolean acquired = false;
+        boolean successful = false;
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        long acquiredTime = start;
         try {
-            acquired = accessMutex.tryAcquire(PYATV_ACCESS_TIMEOUT, TimeUnit.SECONDS);
+            acquired = lane.tryAcquire(PYATV_ACCESS_TIMEOUT, TimeUnit.SECONDS);
+            if (metrics.isEnabled()) {
+                acquiredTime = System.nanoTime();
+            }
+            if (!acquired) {
+                logger.error("Unable to init PyATV: timeout waiting for access");
+                metrics.bridgeTimeout(AppleTVMetrics.GLOBAL, "init", acquiredTime - start);
+                return;
+            }
             pyATV.init(thingHandler);
-
+            successful = true;
         } catch (RuntimeException | InterruptedException e) {
             logger.error("Unable to init PyATV: {} ({})", e.getMessage(), e.getClass());
         } finally {
             if (acquired) {
-                accessMutex.release();
+                lane.release();
+                if (metrics.isEnabled()) {
+                    metrics.bridgeCall(AppleTVMetrics.GLOBAL, "init", acquiredTime - start,
+                            System.nanoTime() - acquiredTime, successful);
+                }
             }
         }
     }
@@ -199,77 +269,511 @@ public class LibPyATV {
      * @param commands  command sequence seperated by ' '
      * @param ipAddress IP address of the Apple-TV
      * @param loginId   Login ID resulting from device pairing
-     * @return true: successful, false: failed, e.g. exception in the PyATV module
+     * @return true: successful, false: failed, e.g. exception in the PyATV module or device busy
      */
     public boolean sendCommands(String commands, Object handler, String ipAddress, String loginId) {
+        List<String> args = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(commands, " ");
+        while (tokenizer.hasMoreElements()) {
+            args.add(tokenizer.nextToken());
+        }
+        return exec(commands, metrics.isEnabled() ? commandName(args) : "", args, handler, ipAddress, loginId,
+                true);
+    }
 
+    /**
+     * Reserve a slot of the call budget for a background poll. Polls never wait for the budget, they are skipped
+     * while interactive calls use the budget.
+     *
+     * @return true: call pollStatus(), false: skip this poll
+     */
+    public boolean reservePoll() {
+        return budget.tryAcquireBackground();
+    }
+
+    /**
+     * Return a slot reserved by reservePoll(), if the poll doesn't get executed
+     */
+    public void releasePoll() {
+        budget.release();
+    }
+
+    /**
+     * Poll the play status (background call). The caller has to reserve the call with reservePoll() before.
+     *
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     * @return true: successful, false: failed, e.g. exception in the PyATV module or device busy
+     */
+    public boolean pollStatus(Object handler, String ipAddress, String loginId) {
+        return call(COMMAND_PLAYING, COMMAND_PLAYING, handler, ipAddress, loginId, false,
+                (p, timeout) -> p.playing(handler, ipAddress, loginId, timeout));
+    }
+
+    /**
+     * Send a compiled key sequence to the PyATV module. All keys are executed by a single bridge call.
+     *
+     * @param keys      validated remote keys
+     * @param keyDelay  delay between two keys in ms, 0=none
+     * @param gestureFrames requests per arrow key (swipe gesture), 2..7
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     * @return true: successful, false: failed, e.g. exception in the PyATV module or device busy
+     */
+    public boolean sendKeys(String[] keys, int keyDelay, int gestureFrames, Object handler, String ipAddress,
+            String loginId) {
+        return call(keys.length == 1 ? keys[0] : "keys", "keys", handler, ipAddress, loginId, true,
+                (p, timeout) -> p.press(handler, ipAddress, loginId, keys, keyDelay, gestureFrames, timeout));
+    }
+
+    /**
+     * Seek to a new position in the current media
+     *
+     * @param seconds new position in sec
+     * @return true: successful, false: failed, e.g. exception in the PyATV module or device busy
+     */
+    public boolean setPosition(Object handler, String ipAddress, String loginId, int seconds) {
+        return call(COMMAND_SET_POSITION, COMMAND_SET_POSITION, handler, ipAddress, loginId, true,
+                (p, timeout) -> p.setPosition(handler, ipAddress, loginId, seconds, timeout));
+    }
+
+    public boolean setShuffle(Object handler, String ipAddress, String loginId, boolean on) {
+        return call(COMMAND_SET_SHUFFLE, COMMAND_SET_SHUFFLE, handler, ipAddress, loginId, true,
+                (p, timeout) -> p.setShuffle(handler, ipAddress, loginId, on, timeout));
+    }
+
+    /**
+     * @param mode repeat mode, 0=off, 1=track, 2=all
+     */
+    public boolean setRepeat(Object handler, String ipAddress, String loginId, int mode) {
+        return call(COMMAND_SET_REPEAT, COMMAND_SET_REPEAT, handler, ipAddress, loginId, true,
+                (p, timeout) -> p.setRepeat(handler, ipAddress, loginId, mode, timeout));
+    }
+
+    /**
+     * Request the cover of the current media, it's passed to handler.artworkEvent(). Background call like
+     * pollStatus(), the caller has to reserve it with reservePoll() before.
+     */
+    public boolean requestArtwork(Object handler, String ipAddress, String loginId) {
+        return call(COMMAND_ARTWORK, COMMAND_ARTWORK, handler, ipAddress, loginId, false,
+                (p, timeout) -> p.artwork(handler, ipAddress, loginId, timeout));
+    }
+
+    /**
+     * Execute a command in atvremote syntax, used for the commands without a typed method (scan, pair, device_id,
+     * ...)
+     */
+    private boolean exec(String commands, String command, List<String> commandArgs, Object handler,
+            String ipAddress, String loginId, boolean interactive) {
+        // PyObject res = plugIn.exec("--address 192.168.x.y --login_id 0xXXXXXXXXXXXXXXXX top_menu");
+        List<String> args = new ArrayList<>(commandArgs.size() + 4);
+        // args.add("--debug");
+        // args.add("--verbose");
+        if (!ipAddress.isEmpty()) {
+            args.add("--address");
+            args.add(ipAddress);
+        }
+        if (!loginId.isEmpty()) {
+            args.add("--login_id");
+            args.add(loginId);
+        }
+        args.addAll(commandArgs);
+        return call(commands, command, handler, ipAddress, loginId, interactive, (p, timeout) -> {
+            List<String> argv = args;
+            if (!ipAddress.isEmpty()) {
+                // device commands get the deadline, global commands (scan, pair) have their own timeouts
+                argv = new ArrayList<>(args);
+                argv.add(0, "--timeout");
+                argv.add(1, Integer.toString(timeout));
+            }
+            return p.exec(handler, argv.toArray(new String[argv.size()]));
+        });
+    }
+
+    /**
+     * Call the PyATV module in the lane of the device. Interactive calls wait for the call budget, background calls
+     * have to reserve it before (see reservePoll()).
+     *
+     * Every call has a deadline (PYATV_CALL_TIMEOUT / PYATV_POLL_TIMEOUT), which includes waiting for the budget and
+     * the lane. The remaining time is passed to the PyATV module, which cancels the call when it expires. Calls to a
+     * device, which doesn't respond, fail fast while its circuit breaker is open.
+     *
+     * @param commands description for logging
+     * @param command  metrics key
+     * @param handler  handler of the call, a thing handler gets informed when the device becomes (un)reachable
+     * @param call     proxy call, returns 0 on success
+     */
+    private boolean call(String commands, String command, Object handler, String ipAddress, String loginId,
+            boolean interactive, ProxyCall call) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(interactive ? PYATV_CALL_TIMEOUT : PYATV_POLL_TIMEOUT);
+        CircuitBreaker breaker = ipAddress.isEmpty() ? null : breaker(ipAddress, loginId);
+        if ((breaker != null) && !passBreaker(breaker, handler, ipAddress, loginId, commands)) {
+            return false;
+        }
+
+        Semaphore lane = lane(ipAddress, loginId);
         boolean acquired = false;
+        boolean successful = false;
+        long acquiredTime = start;
         try {
             logger.trace("Sending command {} to ip {}, lid {}", commands, ipAddress, loginId);
 
-            String[] args = new String[20];
-            // PyObject res = plugIn.exec("--address 192.168.x.y --login_id 0xXXXXXXXXXXXXXXXX top_menu");
-            int a = 0;
-            // args[a++] = "--debug";
-            // args[a++] = "--verbose";
-            if (!ipAddress.isEmpty()) {
-                args[a++] = "--address";
-                args[a++] = ipAddress;
+            if (interactive && !budget.acquireInteractive(maxWait(deadline))) {
+                logger.info("Call budget exhausted, command {} for device {} dropped", commands, ipAddress);
+                metrics.bridgeTimeout(ipAddress, command, System.nanoTime() - start);
+                return false;
             }
-            if (!loginId.isEmpty()) {
-                args[a++] = "--login_id";
-                args[a++] = loginId;
+            acquired = lane.tryAcquire(maxWait(deadline), TimeUnit.MILLISECONDS);
+            acquiredTime = System.nanoTime();
+            if (!acquired) {
+                logger.info("Device {} busy, command {} dropped ({} calls waiting)", ipAddress, commands,
+                        lane.getQueueLength());
+                metrics.bridgeTimeout(ipAddress, command, acquiredTime - start);
+                return false;
             }
-
-            StringTokenizer tokenizer = new StringTokenizer(commands, " ");
-            while (tokenizer.hasMoreElements()) {
-                args[a++] = tokenizer.nextToken();
+            long timeout = TimeUnit.NANOSECONDS.toMillis(deadline - acquiredTime);
+            if (timeout < MIN_CALL_TIMEOUT) {
+                logger.info("Deadline of command {} for device {} expired while waiting", commands, ipAddress);
+                metrics.bridgeTimeout(ipAddress, command, acquiredTime - start);
+                return false;
             }
-
-            acquired = accessMutex.tryAcquire(PYATV_ACCESS_TIMEOUT, TimeUnit.SECONDS);
-            return pyATV.exec(handler, args).getIntValue() == 0;
+            int result = resultCode(call.apply(pyATV, (int) timeout));
+            if (breaker != null) {
+                deviceResult(breaker, handler, ipAddress, commands, result);
+            }
+            successful = result == RESULT_OK;
+            return successful;
         } catch (Exception e) {
             logger.error("Exception on PyATV call: {} ({})", e.getMessage(), e.getClass());
             return false;
         } finally {
             if (acquired) {
-                accessMutex.release();
+                lane.release();
+                if (metrics.isEnabled()) {
+                    metrics.bridgeCall(ipAddress, command, acquiredTime - start, System.nanoTime() - acquiredTime,
+                            successful);
+                }
             }
         }
     }
 
     /**
-     * Calls the PyATV module to scan for devices.
-     * Once successful the PyATV module will call devicesDiscovered() to pass the resulting device json
+     * Check the circuit breaker of the device before a call. When the retry interval of an open breaker has passed the
+     * device gets probed with a server-info request (no login, no lane).
      *
-     * @return Device list in JSON format
+     * @return true: execute the call, false: fail fast
+     */
+    private boolean passBreaker(CircuitBreaker breaker, Object handler, String ipAddress, String loginId,
+            String commands) {
+        switch (breaker.allowRequest(System.nanoTime())) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (!probeDevice(handler, ipAddress, loginId, PROBE_TIMEOUT).isEmpty()) {
+                    breaker.recordSuccess();
+                    logger.info("Device {} responds again", ipAddress);
+                    deviceReachable(handler, true, "");
+                    return true;
+                }
+                breaker.recordFailure("probe failed", System.nanoTime());
+                // fall through
+            default:
+                logger.debug("Device {} doesn't respond, command {} dropped (breaker {})", ipAddress, commands,
+                        breaker);
+                deviceReachable(handler, false, breaker.getReason());
+                return false;
+        }
+    }
+
+    /**
+     * Update the circuit breaker with the result of a call
      */
-    public String scanDevices(AppleTVHandlerFactory handlerFactory) {
+    private void deviceResult(CircuitBreaker breaker, Object handler, String ipAddress, String commands,
+            int result) {
+        if (result == RESULT_UNREACHABLE) {
+            String reason = "Device doesn't respond (" + commands + ")";
+            if (breaker.recordFailure(reason, System.nanoTime())) {
+                logger.info("{}: {} failed calls, further calls fail fast until the device responds again",
+                        ipAddress, BREAKER_FAILURE_THRESHOLD);
+                deviceReachable(handler, false, reason);
+            }
+        } else if ((result == RESULT_OK) || (result == RESULT_FAILED)) {
+            if (breaker.recordSuccess()) {
+                logger.info("Device {} responds again", ipAddress);
+            }
+            deviceReachable(handler, true, "");
+        }
+    }
+
+    private static void deviceReachable(Object handler, boolean reachable, String reason) {
+        if (handler instanceof AppleTVHandler) {
+            ((AppleTVHandler) handler).deviceReachable(reachable, reason);
+        }
+    }
+
+    /**
+     * ms to wait for the budget or the lane: up to PYATV_ACCESS_TIMEOUT, but not beyond the deadline
+     */
+    private static long maxWait(long deadline) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return Math.max(0, Math.min(remaining, TimeUnit.SECONDS.toMillis(PYATV_ACCESS_TIMEOUT)));
+    }
+
+    /**
+     * Enable push updates for a device. The PyATV module long-polls the play status (revision based) in the
+     * background and passes every change to handler.statusEvent().
+     *
+     * @param handler   Thing handler receiving the status events
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     * @return true: push updates started, false: failed
+     */
+    public boolean subscribe(AppleTVHandler handler, String ipAddress, String loginId) {
+        Semaphore lane = lane(ipAddress, loginId);
         boolean acquired = false;
         try {
-            logger.info("Scan for AppleTV devices");
-            /*
-             * String[] args = new String[10];
-             * int a = 0;
-             * args[a++] = "--debug";
-             * args[a++] = "scan";
-             * // the excec(scan) call will do a callback and fills jsonDevices before returning
-             * acquired = accessMutex.tryAcquire(PYATV_ACCESS_TIMEOUT, TimeUnit.SECONDS);
-             * if (pyATV.exec(handlerFactory, args).getIntValue() == 0) {
-             * return "";
-             * }
-             */
-            if (!sendCommands(COMMAND_SCAN, handlerFactory, "", "")) {
-                logger.error("Scanning for Apple-TV devices failed!");
+            logger.debug("Enable push updates for ip {}, lid {}", ipAddress, loginId);
+            acquired = lane.tryAcquire(PYATV_ACCESS_TIMEOUT, TimeUnit.SECONDS);
+            return acquired && isSuccess(pyATV.subscribe(handler, ipAddress, loginId));
+        } catch (RuntimeException | InterruptedException e) {
+            logger.error("Unable to enable push updates: {} ({})", e.getMessage(), e.getClass());
+            return false;
+        } finally {
+            if (acquired) {
+                lane.release();
             }
-        } catch (Exception e) {
-            logger.error("Exception device scan: {} ({})", e.getMessage(), e.getClass());
+        }
+    }
+
+    /**
+     * Result of a push update long-poll (reported by the PyATV module), counted by the circuit breaker of the device
+     * like the result of a call. A device, which doesn't answer the push request, goes OFFLINE after
+     * BREAKER_FAILURE_THRESHOLD failures in a row and gets back ONLINE with the next push update.
+     *
+     * @param handler   Thing handler receiving the status events
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     * @param result    RESULT_OK: update received, RESULT_FAILED/RESULT_UNREACHABLE: long-poll failed
+     */
+    public void pushResult(AppleTVHandler handler, String ipAddress, String loginId, int result) {
+        deviceResult(breaker(ipAddress, loginId), handler, ipAddress, "push updates", result);
+    }
+
+    /**
+     * Result of a DAAP request (Java backend or heartbeat), counted by the circuit breaker of the device like the
+     * result of a call. The thing goes OFFLINE after BREAKER_FAILURE_THRESHOLD requests in a row without a response
+     * and gets back ONLINE with the first response.
+     *
+     * @param handler   Thing handler of the device
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     * @param request   request description for the status reason
+     * @param responded true: device responded (even if the request was rejected), false: connection failed/timeout
+     */
+    public void daapResult(AppleTVHandler handler, String ipAddress, String loginId, String request,
+            boolean responded) {
+        deviceResult(breaker(ipAddress, loginId), handler, ipAddress, request,
+                responded ? RESULT_OK : RESULT_UNREACHABLE);
+    }
+
+    /**
+     * Disable push updates for a device.
+     *
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     */
+    public void unsubscribe(String ipAddress, String loginId) {
+        Semaphore lane = lane(ipAddress, loginId);
+        boolean acquired = false;
+        try {
+            acquired = lane.tryAcquire(PYATV_ACCESS_TIMEOUT, TimeUnit.SECONDS);
+            if (acquired) {
+                pyATV.unsubscribe(ipAddress, loginId);
+            }
+        } catch (RuntimeException | InterruptedException e) {
+            logger.error("Unable to disable push updates: {} ({})", e.getMessage(), e.getClass());
+        } finally {
+            if (acquired) {
+                lane.release();
+            }
+        }
+    }
+
+    /**
+     * Close the device session kept by the PyATV module (event loop, HTTP session, DAAP login).
+     *
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     */
+    public void closeDevice(String ipAddress, String loginId) {
+        Semaphore lane = lane(ipAddress, loginId);
+        boolean acquired = false;
+        try {
+            logger.debug("Closing session for ip {}, lid {}", ipAddress, loginId);
+            acquired = lane.tryAcquire(PYATV_ACCESS_TIMEOUT, TimeUnit.SECONDS);
+            if (acquired) {
+                pyATV.close(ipAddress, loginId);
+            }
+        } catch (RuntimeException | InterruptedException e) {
+            logger.error("Unable to close PyATV session: {} ({})", e.getMessage(), e.getClass());
         } finally {
             if (acquired) {
-                accessMutex.release();
+                lane.release();
+            }
+            lanes.remove(laneKey(ipAddress, loginId));
+            breakers.remove(laneKey(ipAddress, loginId));
+        }
+    }
+
+    /**
+     * Execute a command, which delivers its result through a callback (scan, device_id, pair). Each call gets its own
+     * context as handler, so concurrent calls can't mix up their results. The call runs on the executor, the caller
+     * gets the future immediately.
+     *
+     * @param command    command incl. arguments
+     * @param resultName result delivered by the command, see CallContext.RESULT_xxx
+     * @param ipAddress  IP address of the Apple-TV, empty for global commands
+     * @param loginId    Login ID resulting from device pairing
+     * @param executor   runs the call
+     * @return future result, completes exceptionally if the call failed or didn't deliver the result
+     */
+    public CompletableFuture<String> request(String command, String resultName, String ipAddress, String loginId,
+            Executor executor) {
+        CallContext context = new CallContext(command, resultName);
+        executor.execute(() -> context.completed(sendCommands(command, context, ipAddress, loginId)));
+        return context.getResult();
+    }
+
+    /**
+     * Scan for devices (zeroconf, the scan runs in the global lane and doesn't block any device)
+     *
+     * @return future device list in JSON format
+     */
+    public CompletableFuture<String> scanDevices(Executor executor) {
+        logger.info("Scan for AppleTV devices");
+        return request(COMMAND_SCAN, CallContext.RESULT_DEVICES, "", "", executor);
+    }
+
+    /**
+     * Offer the binding as remote control for pairing, the user selects it on the Apple-TV and enters the PIN
+     *
+     * @param pin        pairing PIN (4 digits)
+     * @param remoteName name of the remote shown on the Apple-TV
+     * @return future login id (pairing guid)
+     */
+    public CompletableFuture<String> pair(String pin, String remoteName, Executor executor) {
+        logger.info("Start pairing as remote '{}'", remoteName);
+        return request(COMMAND_PAIR + " --pin " + pin + " --remote-name " + remoteName, CallContext.RESULT_LOGIN_ID,
+                "", "", executor);
+    }
+
+    /**
+     * Probe a device with a unicast server-info request and return its device id. The probe doesn't login, doesn't
+     * open a device session and doesn't use a device lane, probes of several devices run concurrently.
+     *
+     * @param ipAddress IP address of the Apple-TV
+     * @param loginId   Login ID resulting from device pairing
+     * @param timeout   timeout in ms
+     * @return device id, empty: device didn't respond
+     */
+    public String probeDevice(Object handler, String ipAddress, String loginId, int timeout) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        String deviceId = "";
+        try {
+            PyObject result = pyATV.probe(handler, ipAddress, loginId, timeout);
+            deviceId = result != null ? result.getStringValue() : "";
+            return deviceId != null ? deviceId : "";
+        } catch (RuntimeException e) {
+            logger.error("Unable to probe device {}: {} ({})", ipAddress, e.getMessage(), e.getClass());
+            return "";
+        } finally {
+            if (metrics.isEnabled()) {
+                metrics.bridgeCall(ipAddress, "probe", 0, System.nanoTime() - start,
+                        (deviceId != null) && !deviceId.isEmpty());
             }
         }
-        return "";
+    }
+
+    /**
+     * Start the passive device discovery. The PyATV module listens for zeroconf announcements in the background and
+     * calls handler.deviceAdded(name, ipAddress, loginId) / handler.deviceRemoved(ipAddress) as devices come and go.
+     * No device lane is blocked, the call returns immediately.
+     *
+     * @param handler receives the discovery events
+     * @return true: listener started, false: failed
+     */
+    public boolean startDiscovery(Object handler) {
+        try {
+            logger.debug("Start listening for Apple-TV announcements");
+            return isSuccess(pyATV.startDiscovery(handler));
+        } catch (RuntimeException e) {
+            logger.error("Unable to start discovery: {} ({})", e.getMessage(), e.getClass());
+            return false;
+        }
+    }
+
+    public void stopDiscovery() {
+        try {
+            pyATV.stopDiscovery();
+        } catch (RuntimeException e) {
+            logger.error("Unable to stop discovery: {} ({})", e.getMessage(), e.getClass());
+        }
+    }
+
+    /**
+     * Each device has its own execution lane (fair semaphore = FIFO queue), calls for different devices run
+     * concurrently. Commands not bound to a device (scan, init) share the lane with the empty key.
+     */
+    private Semaphore lane(String ipAddress, String loginId) {
+        return lanes.computeIfAbsent(laneKey(ipAddress, loginId), k -> new Semaphore(1, true));
+    }
+
+    private CircuitBreaker breaker(String ipAddress, String loginId) {
+        return breakers.computeIfAbsent(laneKey(ipAddress, loginId), k -> new CircuitBreaker(
+                BREAKER_FAILURE_THRESHOLD, BREAKER_RETRY_INTERVAL, BREAKER_MAX_RETRY_INTERVAL));
+    }
+
+    /**
+     * Limit the calls per second into the interpreter (all devices)
+     *
+     * @param budget call budget shared by all devices
+     */
+    public void setCallBudget(CallBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Enable the collection of performance metrics
+     *
+     * @param metrics metrics registry
+     */
+    public void setMetrics(AppleTVMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Name of the first command without arguments (e.g. set_position=10 -> set_position), used as metrics key
+     */
+    private static String commandName(List<String> args) {
+        if (args.isEmpty()) {
+            return "";
+        }
+        String command = args.get(0);
+        int equal = command.indexOf('=');
+        return equal < 0 ? command : command.substring(0, equal);
+    }
+
+    private static boolean isSuccess(PyObject result) {
+        return resultCode(result) == RESULT_OK;
+    }
+
+    private static int resultCode(PyObject result) {
+        return result != null ? result.getIntValue() : RESULT_NONE;
+    }
+
+    private static String laneKey(String ipAddress, String loginId) {
+        return ipAddress + "/" + loginId;
     }
 
     public String getLibPath() {
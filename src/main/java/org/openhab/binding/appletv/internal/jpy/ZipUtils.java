@@ -56,10 +56,10 @@ public class ZipUtils {
      *
      * @param zipfile Input .zip file
      * @param outdir  Output directory
+     * @throws IOException unable to read the zip file or write the output
      */
-    public static void extract(File zipfile, File outdir) {
-        try {
-            ZipInputStream zin = new ZipInputStream(new FileInputStream(zipfile));
+    public static void extract(File zipfile, File outdir) throws IOException {
+        try (ZipInputStream zin = new ZipInputStream(new FileInputStream(zipfile))) {
             ZipEntry entry;
             String name, dir;
             while ((entry = zin.getNextEntry()) != null) {
@@ -82,9 +82,6 @@ public class ZipUtils {
 
                 extractFile(zin, outdir, name);
             }
-            zin.close();
-        } catch (IOException e) {
-            // logger.error("Unable to extract zip file: {} ({})", e.getMessage(), e.getClass());
         }
     }
-}
\ No newline at end of file
+}